@@ -0,0 +1,79 @@
+package com.qiqi.inputview;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.KeyEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 绘制路径测试，在设备上运行
+ */
+@RunWith(AndroidJUnit4.class)
+public class InputViewDrawTest {
+    private static final int FRAMES = 100;
+
+    private InputView inputView;
+    private Canvas canvas;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        inputView = new InputView(context);
+        inputView.measure(View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        inputView.layout(0, 0, inputView.getMeasuredWidth(), inputView.getMeasuredHeight());
+        inputView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_1));
+        inputView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_2));
+        Bitmap bitmap = Bitmap.createBitmap(inputView.getWidth(), inputView.getHeight(), Bitmap.Config.ARGB_8888);
+        canvas = new Canvas(bitmap);
+    }
+
+    @Test
+    public void onDraw_allocatesNothingPerFrame() {
+        for (InputView.Mode mode : InputView.Mode.values()) {
+            inputView.setMode(mode);
+            //预热
+            inputView.onDraw(canvas);
+
+            Debug.startAllocCounting();
+            int before = Debug.getThreadAllocCount();
+            for (int i = 0; i < FRAMES; i++) {
+                inputView.onDraw(canvas);
+            }
+            int allocations = Debug.getThreadAllocCount() - before;
+            Debug.stopAllocCounting();
+
+            assertEquals("allocations in " + mode, 0, allocations);
+        }
+    }
+
+    @Test
+    public void onDraw_allocatesNothingWhileAnimating() {
+        inputView.setAnimationEnable(true);
+        inputView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_3));
+        inputView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_DEL));
+        inputView.shake();
+        //预热，同时安排好下一帧
+        inputView.onDraw(canvas);
+
+        Debug.startAllocCounting();
+        int before = Debug.getThreadAllocCount();
+        for (int i = 0; i < FRAMES; i++) {
+            inputView.onDraw(canvas);
+        }
+        int allocations = Debug.getThreadAllocCount() - before;
+        Debug.stopAllocCounting();
+
+        assertEquals(0, allocations);
+    }
+}
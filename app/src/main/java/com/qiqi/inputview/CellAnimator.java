@@ -0,0 +1,201 @@
+package com.qiqi.inputview;
+
+import android.view.animation.AnimationUtils;
+
+/**
+ * 每个 InputView 共用的一个动画驱动器
+ * <p>
+ * 每一项只保存动画类型和开始时间，onDraw 开始时取一次当前帧时间，
+ * 再按需计算每一项的缩放、透明度以及整体的抖动偏移，绘制时不创建任何对象，也不增加额外的 View。
+ * 有动画进行时每帧刷新一次，全部结束后停止调度。只能在主线程使用。
+ */
+final class CellAnimator implements Runnable {
+    static final int NONE = 0;
+    static final int ENTER = 1;//输入：放大并淡入
+    static final int DELETE = 2;//删除：缩小并淡出
+    static final int COMPLETE = 3;//输入完毕：高亮后淡出
+
+    private static final long ENTER_DURATION = 150;
+    private static final long DELETE_DURATION = 150;
+    private static final long COMPLETE_DURATION = 300;
+    private static final long SHAKE_DURATION = 400;
+    private static final int SHAKE_TIMES = 4;//抖动的次数
+
+    private final InputView view;
+    private byte[] types = new byte[0];//每一项的动画类型
+    private long[] startTimes = new long[0];//每一项动画的开始时间
+    private char[] deletedChars = new char[0];//被删除的字符，删除动画中绘制
+    private long shakeStartTime = -1;//抖动的开始时间，没有抖动时为 -1
+    private float shakeAmplitude;//抖动的幅度
+    private long frameTime;//当前帧的时间
+    private boolean isRunning;//当前帧是否有动画
+    private boolean isScheduled;//是否已安排下一帧
+
+    CellAnimator(InputView view) {
+        this.view = view;
+    }
+
+    /**
+     * 项数变化时重新分配，进行中的动画全部取消
+     */
+    void setItemSize(int itemSize) {
+        if (types.length != itemSize) {
+            types = new byte[itemSize];
+            startTimes = new long[itemSize];
+            deletedChars = new char[itemSize];
+        }
+    }
+
+    void startEnter(int index) {
+        start(index, ENTER);
+    }
+
+    void startDelete(int index, char c) {
+        if (index >= 0 && index < deletedChars.length) {
+            deletedChars[index] = c;
+        }
+        start(index, DELETE);
+    }
+
+    /**
+     * 所有项同时高亮，正在输入动画中的项（通常是最后输入的一项）保留输入动画
+     */
+    void startComplete() {
+        long now = AnimationUtils.currentAnimationTimeMillis();
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == ENTER && now - startTimes[i] < ENTER_DURATION) {
+                continue;
+            }
+            start(i, COMPLETE);
+        }
+    }
+
+    /**
+     * 整体左右抖动
+     *
+     * @param amplitude 最大偏移，像素
+     */
+    void shake(float amplitude) {
+        shakeAmplitude = amplitude;
+        shakeStartTime = AnimationUtils.currentAnimationTimeMillis();
+        scheduleNextFrame();
+    }
+
+    private void start(int index, int type) {
+        if (index < 0 || index >= types.length) {
+            return;
+        }
+        types[index] = (byte) type;
+        startTimes[index] = AnimationUtils.currentAnimationTimeMillis();
+        scheduleNextFrame();
+    }
+
+    /**
+     * 取消所有动画，离开窗口时调用
+     */
+    void cancel() {
+        view.removeCallbacks(this);
+        isScheduled = false;
+        isRunning = false;
+        shakeStartTime = -1;
+        for (int i = 0; i < types.length; i++) {
+            types[i] = NONE;
+        }
+    }
+
+    /**
+     * 每帧绘制前调用，记录当前帧时间并结束已完成的动画
+     *
+     * @return 当前帧是否有动画
+     */
+    boolean beginFrame() {
+        frameTime = AnimationUtils.currentAnimationTimeMillis();
+        boolean running = false;
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] != NONE) {
+                if (frameTime - startTimes[i] >= durationOf(types[i])) {
+                    types[i] = NONE;
+                } else {
+                    running = true;
+                }
+            }
+        }
+        if (shakeStartTime >= 0) {
+            if (frameTime - shakeStartTime >= SHAKE_DURATION) {
+                shakeStartTime = -1;
+            } else {
+                running = true;
+            }
+        }
+        isRunning = running;
+        return running;
+    }
+
+    /**
+     * 每帧绘制后调用，还有动画时安排下一帧
+     */
+    void endFrame() {
+        if (isRunning) {
+            scheduleNextFrame();
+        }
+    }
+
+    private void scheduleNextFrame() {
+        if (!isScheduled) {
+            isScheduled = true;
+            view.postOnNextFrame(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        isScheduled = false;
+        view.invalidate();
+    }
+
+    /**
+     * 当前帧是否有动画
+     */
+    boolean isRunning() {
+        return isRunning;
+    }
+
+    int getType(int index) {
+        return types[index];
+    }
+
+    char getDeletedChar(int index) {
+        return deletedChars[index];
+    }
+
+    /**
+     * 当前帧该项动画的进度，已减速插值，取值 [0, 1]
+     */
+    float getFraction(int index) {
+        float t = (frameTime - startTimes[index]) / (float) durationOf(types[index]);
+        t = Math.max(0, Math.min(t, 1));
+        return 1 - (1 - t) * (1 - t);
+    }
+
+    /**
+     * 当前帧的抖动偏移，幅度随时间衰减
+     */
+    float getShakeOffset() {
+        if (shakeStartTime < 0) {
+            return 0;
+        }
+        float t = Math.min(1, (frameTime - shakeStartTime) / (float) SHAKE_DURATION);
+        return (float) (shakeAmplitude * (1 - t) * Math.sin(t * SHAKE_TIMES * 2 * Math.PI));
+    }
+
+    private static long durationOf(int type) {
+        switch (type) {
+            case ENTER:
+                return ENTER_DURATION;
+            case DELETE:
+                return DELETE_DURATION;
+            default:
+                return COMPLETE_DURATION;
+        }
+    }
+}
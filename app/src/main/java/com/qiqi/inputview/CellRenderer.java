@@ -0,0 +1,28 @@
+package com.qiqi.inputview;
+
+import android.graphics.Canvas;
+
+/**
+ * 每一项背景的绘制策略
+ * <p>
+ * 内置 {@link InputView.Mode} 对应的下划线、边框、填充三种实现，
+ * 也可以通过 {@link InputView#setCellRenderer(CellRenderer)} 设置自定义样式，不需要继承 InputView。
+ * 绘制结果会被录制缓存，只有几何或样式变化后才会重新绘制。
+ */
+public interface CellRenderer {
+
+    /**
+     * 控件的几何或样式变化后调用，在这里配置画笔、预先计算批量绘制需要的数据，
+     * 可以通过 {@link InputView#getItemRect(int, android.graphics.Rect)} 等方法读取几何和样式
+     *
+     * @param view 使用该策略的控件
+     */
+    void prepare(InputView view);
+
+    /**
+     * 绘制 from 到 to （包含）之间的项，应使用与项数无关的少量批量绘制调用完成
+     *
+     * @return 本次的绘制调用次数
+     */
+    int draw(Canvas canvas, int from, int to);
+}
@@ -0,0 +1,73 @@
+package com.qiqi.inputview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+
+/**
+ * 光标闪动调度器
+ * <p>
+ * 进程内所有 InputView 共用主线程上的一个 Handler，不再为每个控件创建线程。
+ * 只有存在需要闪动的控件（获得焦点、可见、开启光标且未输入完毕）时才会调度，
+ * 没有控件注册时不产生任何空闲帧。只能在主线程调用。
+ */
+final class CursorBlinker implements Runnable {
+    private static CursorBlinker instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ArrayList<InputView> views = new ArrayList<>();
+    private long scheduledTime = Long.MAX_VALUE;//已调度的下一次闪动时间
+
+    private CursorBlinker() {
+    }
+
+    static CursorBlinker getInstance() {
+        if (instance == null) {
+            instance = new CursorBlinker();
+        }
+        return instance;
+    }
+
+    /**
+     * 开始闪动该控件的光标，重复注册无影响
+     */
+    void register(InputView view) {
+        if (views.contains(view)) {
+            return;
+        }
+        views.add(view);
+        schedule(view.resetCursorBlink(SystemClock.uptimeMillis()));
+    }
+
+    /**
+     * 停止闪动该控件的光标，没有需要闪动的控件时停止调度
+     */
+    void unregister(InputView view) {
+        if (views.remove(view) && views.isEmpty()) {
+            handler.removeCallbacks(this);
+            scheduledTime = Long.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public void run() {
+        scheduledTime = Long.MAX_VALUE;
+        long now = SystemClock.uptimeMillis();
+        long next = Long.MAX_VALUE;
+        for (int i = views.size() - 1; i >= 0; i--) {
+            next = Math.min(next, views.get(i).onCursorBlink(now));
+        }
+        schedule(next);
+    }
+
+    private void schedule(long time) {
+        if (time >= scheduledTime) {
+            return;
+        }
+        handler.removeCallbacks(this);
+        scheduledTime = time;
+        handler.postAtTime(this, time);
+    }
+}
@@ -0,0 +1,16 @@
+package com.qiqi.inputview;
+
+import android.graphics.Paint;
+
+/**
+ * 背景填充样式
+ */
+class FillRenderer extends PathCellRenderer {
+
+    @Override
+    int configure(InputView view) {
+        paint.setColor(view.getFillColor());
+        paint.setStyle(Paint.Style.FILL);
+        return 0;
+    }
+}
@@ -0,0 +1,149 @@
+package com.qiqi.inputview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 字形图集
+ * <p>
+ * 把数字 0-9 和密文符号预先绘制到一张位图上，绘制时只需要拷贝位图的对应区域，
+ * 不用每帧都经过文字排版。相同 (文字大小, 文字颜色, 字体, 密文符号) 的控件共用同一个图集，
+ * 图集只被控件弱引用缓存，没有控件使用时随之回收。只能在主线程使用。
+ */
+final class GlyphAtlas {
+    private static final String DIGITS = "0123456789";
+    private static final HashMap<Key, WeakReference<GlyphAtlas>> CACHE = new HashMap<>();
+
+    private final Bitmap bitmap;
+    private final String glyphs;//图集中的字符，依次排列
+    private final Rect[] glyphRects;//每个字符在位图中的区域
+    private final int glyphWidth;//每个字符格子的宽度
+    private final int ascent;//基线到格子顶部的距离
+
+    /**
+     * 获取共享的图集，不存在时创建
+     */
+    static GlyphAtlas obtain(int textSize, int textColor, Typeface typeface, String cipherText) {
+        Key key = new Key(textSize, textColor, typeface, cipherText);
+        WeakReference<GlyphAtlas> ref = CACHE.get(key);
+        GlyphAtlas atlas = ref == null ? null : ref.get();
+        if (atlas == null) {
+            purge();
+            atlas = new GlyphAtlas(textSize, textColor, typeface, DIGITS + cipherText);
+            CACHE.put(key, new WeakReference<>(atlas));
+        }
+        return atlas;
+    }
+
+    /**
+     * 清空缓存，仍在使用的图集在控件释放后随之回收
+     */
+    static void clear() {
+        CACHE.clear();
+    }
+
+    /**
+     * 移除已经被回收的图集
+     */
+    private static void purge() {
+        Iterator<Map.Entry<Key, WeakReference<GlyphAtlas>>> iterator = CACHE.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().get() == null) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private GlyphAtlas(int textSize, int textColor, Typeface typeface, String glyphs) {
+        this.glyphs = glyphs;
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(textSize);
+        paint.setColor(textColor);
+        paint.setTypeface(typeface);
+        paint.setTextAlign(Paint.Align.CENTER);
+        Paint.FontMetricsInt fontMetrics = paint.getFontMetricsInt();
+        float maxWidth = 0;
+        for (int i = 0; i < glyphs.length(); i++) {
+            maxWidth = Math.max(maxWidth, paint.measureText(glyphs, i, i + 1));
+        }
+        //左右各留 1px，避免抗锯齿边缘被相邻字符覆盖
+        glyphWidth = (int) Math.ceil(maxWidth) + 2;
+        ascent = -fontMetrics.top;
+        int glyphHeight = Math.max(1, fontMetrics.bottom - fontMetrics.top);
+        bitmap = Bitmap.createBitmap(glyphWidth * glyphs.length(), glyphHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        glyphRects = new Rect[glyphs.length()];
+        for (int i = 0; i < glyphs.length(); i++) {
+            glyphRects[i] = new Rect(glyphWidth * i, 0, glyphWidth * (i + 1), glyphHeight);
+            canvas.drawText(glyphs, i, i + 1, glyphWidth * i + glyphWidth / 2f, ascent, paint);
+        }
+    }
+
+    /**
+     * 绘制一个字符
+     *
+     * @param c        要绘制的字符
+     * @param centerX  字符中心x坐标
+     * @param baseline 文字基线y坐标
+     * @param dst      用于计算目标区域的临时对象
+     * @param paint    绘制位图用的画笔，可以为空
+     * @return 图集中没有该字符时返回 false，需要调用方自行绘制
+     */
+    boolean draw(Canvas canvas, char c, float centerX, float baseline, Rect dst, Paint paint) {
+        int index = glyphs.indexOf(c);
+        if (index < 0) {
+            return false;
+        }
+        int left = Math.round(centerX - glyphWidth / 2f);
+        int top = Math.round(baseline) - ascent;
+        dst.set(left, top, left + glyphWidth, top + glyphRects[index].height());
+        canvas.drawBitmap(bitmap, glyphRects[index], dst, paint);
+        return true;
+    }
+
+    private static final class Key {
+        private final int textSize;
+        private final int textColor;
+        private final Typeface typeface;
+        private final String cipherText;
+
+        Key(int textSize, int textColor, Typeface typeface, String cipherText) {
+            this.textSize = textSize;
+            this.textColor = textColor;
+            this.typeface = typeface;
+            this.cipherText = cipherText;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return textSize == key.textSize
+                    && textColor == key.textColor
+                    && (typeface == null ? key.typeface == null : typeface.equals(key.typeface))
+                    && cipherText.equals(key.cipherText);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = textSize;
+            result = 31 * result + textColor;
+            result = 31 * result + (typeface == null ? 0 : typeface.hashCode());
+            result = 31 * result + cipherText.hashCode();
+            return result;
+        }
+    }
+}
@@ -1,67 +1,182 @@
 package com.qiqi.inputview;
 
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Picture;
 import android.graphics.Rect;
-import android.os.Bundle;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
 import android.os.Parcelable;
 import android.text.InputType;
-import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputConnection;
 import android.view.inputmethod.InputMethodManager;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import com.qiqi.inputview.core.CellLayout;
+import com.qiqi.inputview.core.CharFilter;
+import com.qiqi.inputview.core.InputModel;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class InputView extends View {
 
-    private Mode mode; //样式模式
-    private int itemSize;//个数
-    private int itemPadding;//间隔
-    private int itemWidth;//宽度
-    private int itemHeight;//高度
-    private int border;//边框/下划线宽度
-    private int rectColor;//边框颜色
-    private int underLineColor;//下划线颜色
-    private int fillColor;//填充颜色
-    private int textSize;//文字大小
-    private int textColor;//文字颜色
-    private long cursorFlashTime;//光标闪动间隔时间
-    private boolean isCursorEnable;//是否开启光标
-    private boolean cipherEnable;//是否开启密文
-    private int cursorColor;//光标颜色
-
-    private int cursorPosition;//光标位置
-    private int cursorWidth;//光标粗细
+    private InputViewStyle style;//共享的样式：尺寸、颜色、模式及配置好的画笔
+    private CellLayout cellLayout;//个数、间隔、宽度、高度及每一项的布局计算
+
     private int cursorHeight;//光标长度
     private boolean isCursorShowing;//光标是否正在显示
-    private boolean isInputComplete;//是否输入完毕
     private static String CIPHER_TEXT = "*"; //密文符号
-    private String[] text;//文本数组
+    private InputModel model;//输入状态：文本缓冲、光标位置、是否输入完毕
+    private final char[] glyph = new char[1];//明文绘制单个字符用
     private InputMethodManager inputManager;
-    private Paint paint;
-    private Timer timer;
-    private TimerTask timerTask;
+    private CellRenderer cellRenderer;//每一项背景的绘制策略
+    private long nextBlinkTime;//下一次光标闪动的时间
+    private boolean isAttached;//是否已添加到窗口
+
+    private Rect[] itemRects;//每一项的区域
+    private float[] itemCenterX;//每一项的中心x坐标
+    private float cursorStartY;//光标起始点y
+    private float cursorStopY;//光标终止点y
+    private float textBaseline;//文字基线y
+    private final Rect textBounds = new Rect();//测量文字用，避免每帧创建
+    private final Rect clipBounds = new Rect();//当前帧的裁剪区域
+    private int firstVisibleItem;//当前帧需要绘制的第一项
+    private int lastVisibleItem;//当前帧需要绘制的最后一项
+    private GlyphAtlas glyphAtlas;//共享的字形图集，文字样式变化时置空，绘制时重新获取
+    private final Rect glyphRect = new Rect();//字形绘制的目标区域
+    private Picture frameCache;//当前模式下背景（下划线/边框/填充）的录制结果
+    private boolean isFrameCacheValid;//录制结果是否与当前模式、尺寸和颜色一致
+    private int batchEditDepth;//批量编辑的嵌套层数
+    private int changedFrom = Integer.MAX_VALUE;//批量编辑中发生变化的第一项
+    private int changedTo = -1;//批量编辑中发生变化的最后一项
+    private boolean isRedrawDeferred;//为 true 时不刷新单独的项，由调用方最后统一刷新
+    private OnTextChangedListener onTextChangedListener;
+    private OnInputCompleteListener onInputCompleteListener;
+    private boolean isChangeDispatchPending;//是否已安排在下一帧分发内容变化
+    private InputViewMetrics metrics;//绘制与输入统计，未开启时为空
+    private boolean isMetricsOverlayEnabled;//是否在控件上显示统计数据
+    private Paint metricsPaint;//绘制统计数据的画笔
+    private final StringBuilder metricsText = new StringBuilder();//复用的统计文字
+    private int frameDrawCalls;//当前帧的绘制调用次数
+    private int maxScrollX;//横向滚动的最大距离，未开启滚动或宽度足够时为 0
+    private int touchSlop;//开始拖动滚动的最小距离
+    private float lastTouchX;//上一次触摸的x坐标
+    private boolean isDragging;//是否正在拖动滚动
+    private CellAnimator animator;//输入、删除、完成和抖动动画，未开启动画且没有抖动过时为空
+    private Paint animationPaint;//动画中绘制文字的画笔，每帧复用
+    private Paint highlightPaint;//输入完毕时高亮的画笔
+    private AccessibilityManager accessibilityManager;
+    private InputViewAccessibility accessibility;//每一项的无障碍虚拟节点，API 16 以下或未被查询时为空
+    private int accessibilityChangedFrom = Integer.MAX_VALUE;//本帧需要通知无障碍服务的第一项
+    private int accessibilityChangedTo = -1;//本帧需要通知无障碍服务的最后一项
+    private static final char KEY_DELETE = 0;//按键队列中表示删除，过滤器不接受 \0
+    private char[] pendingKeys = new char[16];//本帧还未应用的按键
+    private int pendingKeyCount;//本帧还未应用的按键数
+    private boolean isKeyApplyPending;//是否已安排在下一帧应用按键
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());//其他线程切换到主线程用
+    private final AtomicReference<String> pendingText = new AtomicReference<>();//其他线程提交、还未应用的内容
+    private final Runnable scheduleTextRunnable = new Runnable() {
+        @Override
+        public void run() {
+            //已在主线程，添加到窗口时等到下一帧应用，否则立即应用
+            if (isAttached) {
+                postOnNextFrame(applyTextRunnable);
+            } else {
+                applyPendingText();
+            }
+        }
+    };
+    private final Runnable applyTextRunnable = new Runnable() {
+        @Override
+        public void run() {
+            applyPendingText();
+        }
+    };
+    private final Runnable applyKeysRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isKeyApplyPending = false;
+            flushPendingKeys();
+        }
+    };
+    private final Runnable dispatchChangeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchTextChanged();
+        }
+    };
 
     public InputView(Context context) {
-        super(context);
+        this(context, null);
     }
 
     public Mode getMode() {
-        return mode;
+        return style.mode;
     }
 
     public void setMode(Mode mode) {
-        this.mode = mode;
-        postInvalidate();
+        edit().setMode(mode).apply();
+    }
+
+    /**
+     * 内容变化监听，同一帧内的多次变化合并为一次回调
+     */
+    public interface OnTextChangedListener {
+        /**
+         * @param text 输入内容的只读视图，不会为每次回调创建新对象，需要保存时请调用 toString()
+         */
+        void onTextChanged(InputView view, CharSequence text);
+    }
+
+    /**
+     * 输入完毕监听，内容变化后所有项都已输入时在下一帧回调一次
+     */
+    public interface OnInputCompleteListener {
+        /**
+         * @param text 输入内容的只读视图，不会为每次回调创建新对象，需要保存时请调用 toString()
+         */
+        void onInputComplete(InputView view, CharSequence text);
+    }
+
+    /**
+     * 快照完成回调，在主线程调用
+     */
+    public interface OnSnapshotListener {
+        /**
+         * @param bitmap 提供的 Bitmap 可以复用时即为该 Bitmap，否则为新创建的
+         */
+        void onSnapshot(Bitmap bitmap);
+    }
+
+    public void setOnTextChangedListener(OnTextChangedListener onTextChangedListener) {
+        this.onTextChangedListener = onTextChangedListener;
+    }
+
+    public void setOnInputCompleteListener(OnInputCompleteListener onInputCompleteListener) {
+        this.onInputCompleteListener = onInputCompleteListener;
+    }
+
+    /**
+     * 是否所有项都已输入
+     */
+    public boolean isInputComplete() {
+        flushPendingKeys();
+        return model.isComplete();
     }
 
     public enum Mode {
@@ -100,7 +215,7 @@ public class InputView extends View {
     }
 
     /**
-     * 当前只支持从xml中构建该控件
+     * 从xml中构建该控件，attrs 为空时使用默认属性
      *
      * @param context
      * @param attrs
@@ -111,26 +226,10 @@ public class InputView extends View {
     }
 
     private void readAttribute(AttributeSet attrs) {
-        if (attrs != null) {
-            TypedArray typedArray = getContext().obtainStyledAttributes(attrs, R.styleable.InputView);
-            itemSize = typedArray.getInteger(R.styleable.InputView_itemSize, 4);
-            itemPadding = typedArray.getDimensionPixelSize(R.styleable.InputView_itemPadding, dp2px(15));
-            itemWidth = typedArray.getDimensionPixelSize(R.styleable.InputView_itemWidth, dp2px(40));
-            itemHeight = typedArray.getDimensionPixelSize(R.styleable.InputView_itemHeight, dp2px(40));
-            border = typedArray.getDimensionPixelSize(R.styleable.InputView_border, dp2px(2));
-            rectColor = typedArray.getColor(R.styleable.InputView_rectColor, Color.BLACK);
-            underLineColor = typedArray.getColor(R.styleable.InputView_underLineColor, Color.BLACK);
-            fillColor = typedArray.getColor(R.styleable.InputView_fillColor, Color.GRAY);
-            textSize = typedArray.getDimensionPixelSize(R.styleable.InputView_textSize, sp2px(16));
-            textColor = typedArray.getColor(R.styleable.InputView_textColor, Color.RED);
-            cursorFlashTime = typedArray.getInteger(R.styleable.InputView_cursorFlashTime, 500);
-            isCursorEnable = typedArray.getBoolean(R.styleable.InputView_isCursorEnable, true);
-            cipherEnable = typedArray.getBoolean(R.styleable.InputView_cipherEnable, true);
-            cursorColor = typedArray.getColor(R.styleable.InputView_cursorColor, Color.GRAY);
-            mode = Mode.formMode(typedArray.getInteger(R.styleable.InputView_mode, Mode.UNDERLINE.getMode()));
-            typedArray.recycle();
-        }
-        text = new String[itemSize];
+        style = InputViewStyle.obtain(getContext(), attrs);
+        cellLayout = new CellLayout(style.itemSize, style.itemWidth, style.itemHeight, style.itemPadding);
+        model = new InputModel(style.itemSize);
+        model.setFilter(style.filter);
         init();
     }
 
@@ -139,145 +238,534 @@ public class InputView extends View {
         MyKeyListener MyKeyListener = new MyKeyListener();
         setOnKeyListener(MyKeyListener);
         inputManager = (InputMethodManager) getContext().getSystemService(Context.INPUT_METHOD_SERVICE);
-        paint = new Paint();
-        paint.setAntiAlias(true);
-        timerTask = new TimerTask() {
-            @Override
-            public void run() {
-                isCursorShowing = !isCursorShowing;
-                postInvalidate();
-            }
-        };
-        timer = new Timer();
+        touchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+        accessibilityManager = (AccessibilityManager) getContext().getSystemService(Context.ACCESSIBILITY_SERVICE);
+        cellRenderer = createRenderer(style.mode);
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (metrics != null) {
+            metrics.onMeasure();
+        }
         int widthMode = MeasureSpec.getMode(widthMeasureSpec);
         int width = 0;
+        int exactWidth = -1;
         switch (widthMode) {
             case MeasureSpec.UNSPECIFIED:
             case MeasureSpec.AT_MOST:
                 //没有指定大小，宽度 = 单个密码框大小 * 密码位数 + 密码框间距 *（密码位数 - 1）
-                width = itemWidth * itemSize + itemPadding * (itemSize - 1);
+                width = cellLayout.getPreferredWidth();
+                if (style.scrollEnable && widthMode == MeasureSpec.AT_MOST) {
+                    //开启滚动时不超过最大宽度，超出的部分滚动显示
+                    width = Math.min(width, MeasureSpec.getSize(widthMeasureSpec));
+                }
                 break;
             case MeasureSpec.EXACTLY:
-                //指定大小，宽度 = 指定的大小
+                //指定大小，宽度 = 指定的大小，未开启滚动时密码框大小由 CellLayout 按宽度计算
                 width = MeasureSpec.getSize(widthMeasureSpec);
-                //密码框大小等于 (宽度 - 密码框间距 *(密码位数 - 1)) / 密码位数
-                itemWidth = (width - (itemPadding * (itemSize - 1))) / itemSize;
+                if (!style.scrollEnable) {
+                    exactWidth = width;
+                }
                 break;
         }
         int heightMode = MeasureSpec.getMode(heightMeasureSpec);
         int height = 0;
+        int exactHeight = -1;
         switch (heightMode) {
             case MeasureSpec.UNSPECIFIED:
             case MeasureSpec.AT_MOST:
-                //没有指定大小，宽度 = 单个密码框大小 * 密码位数 + 密码框间距 *（密码位数 - 1）
-                height = itemHeight;
+                //没有指定大小，高度 = 单个密码框高度
+                height = cellLayout.getPreferredHeight();
                 break;
             case MeasureSpec.EXACTLY:
                 //指定大小，高度 = 指定的大小
                 height = MeasureSpec.getSize(heightMeasureSpec);
-                itemHeight = height;
+                exactHeight = height;
                 break;
         }
+        cellLayout.resolve(exactWidth, exactHeight);
 
         setMeasuredDimension(width, height);
+        measureItems();
     }
 
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
-        //光标宽度
-        cursorWidth = dp2px(2);
+        measureItems();
+    }
+
+    /**
+     * 预先计算每一项的区域、中心、光标端点和文字基线，onDraw 中只读取这些值，不再创建对象
+     * 尺寸变化或影响几何的属性变化时调用
+     */
+    private void measureItems() {
         //光标长度
-        cursorHeight = textSize;
+        cursorHeight = style.textSize;
+        int itemSize = cellLayout.getItemSize();
+        if (itemRects == null || itemRects.length != itemSize) {
+            itemRects = new Rect[itemSize];
+            itemCenterX = new float[itemSize];
+            for (int i = 0; i < itemSize; i++) {
+                itemRects[i] = new Rect();
+            }
+        }
+        if (animator != null) {
+            animator.setItemSize(itemSize);
+        }
+        cellLayout.setOrigin(getPaddingLeft(), getPaddingTop());
+        int top = cellLayout.getCellTop();
+        int itemHeight = cellLayout.getCellHeight();
+        for (int i = 0; i < itemSize; i++) {
+            // 起始点x为paddingLeft + (单个密码框大小 + 密码框边距) * i
+            itemRects[i].set(cellLayout.getCellLeft(i), top, cellLayout.getCellRight(i), cellLayout.getCellBottom());
+            itemCenterX[i] = cellLayout.getCellCenterX(i);
+        }
+        // 起始点y = paddingTop + (单个密码框大小 - 光标大小) / 2
+        cursorStartY = top + (itemHeight - cursorHeight) / 2;
+        cursorStopY = top + (itemHeight + cursorHeight) / 2;
+        //文字居中的处理
+        style.textPaint.getTextBounds(CIPHER_TEXT, 0, CIPHER_TEXT.length(), textBounds);
+        textBaseline = top + itemHeight / 2f + textBounds.height() / 2f - textBounds.bottom;
+        //内容超出宽度的部分可以滚动
+        maxScrollX = 0;
+        if (style.scrollEnable && itemSize > 0) {
+            maxScrollX = Math.max(0, cellLayout.getCellRight(itemSize - 1) + getPaddingRight() - getWidth());
+        }
+        if (getScrollX() > maxScrollX) {
+            scrollTo(maxScrollX, 0);
+        }
+        scrollToCursor();
+        onCellStyleChanged();
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
+        long drawStart = metrics != null ? System.nanoTime() : 0;
+        frameDrawCalls = 0;
+        //动画中的抖动偏移
+        int saveCount = -1;
+        if (animator != null && animator.beginFrame()) {
+            float shakeOffset = animator.getShakeOffset();
+            if (shakeOffset != 0) {
+                saveCount = canvas.save();
+                canvas.translate(shakeOffset, 0);
+            }
+        }
+        //只绘制与裁剪区域相交的项
+        computeVisibleItems(canvas);
+        //绘制背景
+        drawFrame(canvas);
+        drawHighlight(canvas);
+        //绘制光标
+        drawCursor(canvas, style.cursorPaint);
+        //绘制密码文本
+        drawCipherText(canvas, style.textPaint);
+        if (saveCount >= 0) {
+            canvas.restoreToCount(saveCount);
+        }
+        if (animator != null) {
+            animator.endFrame();
+        }
+        if (metrics != null) {
+            metrics.onFrameDrawn(System.nanoTime() - drawStart, frameDrawCalls);
+            if (isMetricsOverlayEnabled) {
+                drawMetricsOverlay(canvas);
+            }
+        }
+    }
+
+    /**
+     * 绘制背景，背景在闪动和输入时不会变化，录制一次后每帧直接回放
+     * 硬件加速在 API 23 之前不支持 drawPicture，此时直接绘制
+     * 开启滚动时录制结果包含所有项，只直接绘制可见的项
+     *
+     * @param canvas
+     */
+    private void drawFrame(Canvas canvas) {
+        if (style.scrollEnable
+                || Build.VERSION.SDK_INT < Build.VERSION_CODES.M && canvas.isHardwareAccelerated()) {
+            frameDrawCalls += cellRenderer.draw(canvas, firstVisibleItem, lastVisibleItem);
+            return;
+        }
+        if (!isFrameCacheValid) {
+            if (frameCache == null) {
+                frameCache = new Picture();
+            }
+            Canvas recordingCanvas = frameCache.beginRecording(getWidth(), getHeight());
+            cellRenderer.draw(recordingCanvas, 0, cellLayout.getItemSize() - 1);
+            frameCache.endRecording();
+            isFrameCacheValid = true;
+        }
+        canvas.drawPicture(frameCache);
+        frameDrawCalls++;
+    }
+
+    /**
+     * 几何或背景样式变化后，重新配置绘制策略，下一帧重新录制背景
+     */
+    private void onCellStyleChanged() {
+        if (itemRects != null) {
+            cellRenderer.prepare(this);
+        }
+        isFrameCacheValid = false;
+    }
+
+    private static CellRenderer createRenderer(Mode mode) {
         if (mode == Mode.UNDERLINE) {
-            //绘制下划线
-            drawUnderLine(canvas, paint);
+            return new UnderLineRenderer();
         } else if (mode == Mode.RECT) {
-            //绘制方框
-            drawRect(canvas, paint);
+            return new RectRenderer();
         } else {
-            // 绘制填充背景
-            drawFill(canvas, paint);
+            return new FillRenderer();
+        }
+    }
+
+    /**
+     * 根据裁剪区域计算需要绘制的项的范围
+     *
+     * @param canvas
+     */
+    private void computeVisibleItems(Canvas canvas) {
+        if (!canvas.getClipBounds(clipBounds)) {
+            firstVisibleItem = 0;
+            lastVisibleItem = cellLayout.getItemSize() - 1;
+            return;
+        }
+        firstVisibleItem = cellLayout.getFirstVisible(clipBounds.left);
+        lastVisibleItem = cellLayout.getLastVisible(clipBounds.right);
+    }
+
+    /**
+     * 只刷新 from 到 to （包含）之间的项
+     */
+    private void invalidateItems(int from, int to) {
+        if (isRedrawDeferred) {
+            return;
+        }
+        if (itemRects == null) {
+            invalidate();
+            return;
+        }
+        from = Math.max(from, 0);
+        to = Math.min(to, itemRects.length - 1);
+        if (from > to) {
+            return;
+        }
+        invalidate(itemRects[from].left, itemRects[from].top, itemRects[to].right, itemRects[to].bottom);
+    }
+
+    /**
+     * 开启滚动时，保证光标所在的项完整显示
+     */
+    private void scrollToCursor() {
+        if (maxScrollX <= 0 || itemRects == null || itemRects.length == 0) {
+            return;
+        }
+        int index = Math.min(model.getCursorPosition(), itemRects.length - 1);
+        int scrollX = getScrollX();
+        int left = itemRects[index].left - getPaddingLeft();
+        int right = itemRects[index].right + getPaddingRight() - getWidth();
+        if (left < scrollX) {
+            scrollX = left;
+        } else if (right > scrollX) {
+            scrollX = right;
+        }
+        scrollX = Math.max(0, Math.min(scrollX, maxScrollX));
+        if (scrollX != getScrollX()) {
+            scrollTo(scrollX, 0);
         }
-        //绘制光标
-        drawCursor(canvas, paint);
-        //绘制密码文本
-        drawCipherText(canvas, paint);
     }
 
+    @Override
+    protected int computeHorizontalScrollRange() {
+        return getWidth() + maxScrollX;
+    }
+
+    /**
+     * 按键先进入队列，下一帧统一应用到输入状态，扫码枪等一次发送几十个按键时每帧只刷新一次
+     * 支持长按重复和 ACTION_MULTIPLE，未添加到窗口时立即应用
+     */
     class MyKeyListener implements OnKeyListener {
 
         @Override
         public boolean onKey(View v, int keyCode, KeyEvent event) {
             int action = event.getAction();
+            boolean handled = false;
             if (action == KeyEvent.ACTION_DOWN) {
-                if (keyCode == KeyEvent.KEYCODE_DEL) {
-                    /**
-                     * 删除操作
-                     */
-                    if (TextUtils.isEmpty(text[0])) {
-                        return true;
+                handled = enqueueKey(keyCode, event, 1);
+            } else if (action == KeyEvent.ACTION_MULTIPLE) {
+                if (keyCode == KeyEvent.KEYCODE_UNKNOWN) {
+                    //一次输入的多个字符
+                    String characters = event.getCharacters();
+                    for (int i = 0; characters != null && i < characters.length(); i++) {
+                        if (model.accepts(characters.charAt(i))) {
+                            enqueueKey(characters.charAt(i));
+                            handled = true;
+                        }
                     }
-                    delete();
-                    postInvalidate();
-                    return true;
+                } else {
+                    //同一个按键重复多次
+                    handled = enqueueKey(keyCode, event, event.getRepeatCount());
                 }
-                if (keyCode >= KeyEvent.KEYCODE_0 && keyCode <= KeyEvent.KEYCODE_9) {
-                    /**
-                     * 只支持数字
-                     */
-                    if (isInputComplete) {
-                        return true;
-                    }
-                    add((keyCode - 7) + "");
-                    postInvalidate();
-                    return true;
+            }
+            if (handled) {
+                if (isAttached) {
+                    scheduleKeys();
+                } else {
+                    flushPendingKeys();
+                }
+            }
+            return handled;
+        }
+    }
+
+    /**
+     * 把按键放入队列，重复次数超过项数的部分没有效果，直接忽略
+     *
+     * @return 是否为可以处理的按键
+     */
+    private boolean enqueueKey(int keyCode, KeyEvent event, int count) {
+        char c;
+        if (keyCode == KeyEvent.KEYCODE_DEL) {
+            /**
+             * 删除操作
+             */
+            c = KEY_DELETE;
+        } else {
+            /**
+             * 只支持过滤器允许的字符
+             */
+            int unicodeChar = event.getUnicodeChar();
+            if (unicodeChar <= 0 || unicodeChar > Character.MAX_VALUE || !model.accepts((char) unicodeChar)) {
+                return false;
+            }
+            c = (char) unicodeChar;
+        }
+        count = Math.min(count, cellLayout.getItemSize());
+        for (int i = 0; i < count; i++) {
+            enqueueKey(c);
+        }
+        return true;
+    }
+
+    private void enqueueKey(char c) {
+        if (pendingKeyCount == pendingKeys.length) {
+            char[] newKeys = new char[pendingKeys.length * 2];
+            System.arraycopy(pendingKeys, 0, newKeys, 0, pendingKeyCount);
+            pendingKeys = newKeys;
+        }
+        pendingKeys[pendingKeyCount++] = c;
+    }
+
+    private void scheduleKeys() {
+        if (!isKeyApplyPending) {
+            isKeyApplyPending = true;
+            postOnNextFrame(applyKeysRunnable);
+        }
+    }
+
+    /**
+     * 队列中还未应用的按键数，只用于测试
+     */
+    int getPendingKeyCount() {
+        return pendingKeyCount;
+    }
+
+    /**
+     * 按顺序应用队列中的按键，作为一次批量编辑只刷新一次
+     * 读取或修改输入状态前都要先调用，保证顺序与按键一致
+     */
+    private void flushPendingKeys() {
+        if (pendingKeyCount == 0) {
+            return;
+        }
+        int count = pendingKeyCount;
+        pendingKeyCount = 0;
+        beginBatchEdit();
+        for (int i = 0; i < count; i++) {
+            char c = pendingKeys[i];
+            if (c == KEY_DELETE) {
+                deleteBefore(1);
+            } else {
+                int oldPosition = model.getCursorPosition();
+                if (model.add(c)) {
+                    animateAdded(oldPosition, model.getCursorPosition());
+                    //刷新新增的项和新的光标所在的项
+                    onTextChanged(oldPosition, model.getCursorPosition());
                 }
             }
-            return false;
+        }
+        endBatchEdit();
+    }
+
+    /**
+     * 新增的项开始输入动画，输入完毕时开始高亮动画
+     */
+    private void animateAdded(int from, int to) {
+        if (!style.animationEnable) {
+            return;
+        }
+        CellAnimator animator = obtainAnimator();
+        for (int i = from; i < to; i++) {
+            animator.startEnter(i);
+        }
+        if (model.isComplete()) {
+            animator.startComplete();
+        }
+    }
+
+    private CellAnimator obtainAnimator() {
+        if (animator == null) {
+            animator = new CellAnimator(this);
+            animator.setItemSize(cellLayout.getItemSize());
+            animationPaint = new Paint();
+            highlightPaint = new Paint();
+            highlightPaint.setStyle(Paint.Style.FILL);
+        }
+        return animator;
+    }
+
+    /**
+     * 开始批量编辑，结束前的修改只在 {@link #endBatchEdit()} 时统一刷新一次
+     */
+    void beginBatchEdit() {
+        flushPendingKeys();
+        batchEditDepth++;
+    }
+
+    /**
+     * 结束批量编辑，最外层结束时统一刷新发生变化的项
+     */
+    void endBatchEdit() {
+        if (batchEditDepth == 0) {
+            return;
+        }
+        batchEditDepth--;
+        if (batchEditDepth == 0 && changedFrom <= changedTo) {
+            int from = changedFrom;
+            int to = changedTo;
+            changedFrom = Integer.MAX_VALUE;
+            changedTo = -1;
+            onTextChanged(from, to);
+        }
+    }
+
+    /**
+     * 内容发生变化，批量编辑中只记录变化范围
+     *
+     * @param from 发生变化的第一项
+     * @param to   发生变化的最后一项
+     */
+    private void onTextChanged(int from, int to) {
+        if (batchEditDepth > 0) {
+            changedFrom = Math.min(changedFrom, from);
+            changedTo = Math.max(changedTo, to);
+            return;
+        }
+        //批量编辑结束时才统计，一次批量编辑或一帧内的按键只算一次
+        if (metrics != null) {
+            metrics.onInputEvent();
+        }
+        //光标总在变化范围内，重新开始闪动时不需要再单独刷新光标所在的项
+        boolean redrawDeferred = isRedrawDeferred;
+        isRedrawDeferred = true;
+        updateCursorBlink();
+        isRedrawDeferred = redrawDeferred;
+        invalidateItems(from, to);
+        scrollToCursor();
+        updateImeSelection();
+        accessibilityChangedFrom = Math.min(accessibilityChangedFrom, from);
+        accessibilityChangedTo = Math.max(accessibilityChangedTo, to);
+        if (!isChangeDispatchPending) {
+            isChangeDispatchPending = true;
+            postOnNextFrame(dispatchChangeRunnable);
+        }
+    }
+
+    /**
+     * 光标总在末尾，通知缓存了光标位置的软键盘
+     */
+    private void updateImeSelection() {
+        int cursorPosition = model.getCursorPosition();
+        inputManager.updateSelection(this, cursorPosition, cursorPosition, -1, -1);
+    }
+
+    /**
+     * 分发本帧内合并后的内容变化
+     */
+    private void dispatchTextChanged() {
+        isChangeDispatchPending = false;
+        //只通知发生变化的项
+        if (accessibility != null && accessibilityManager.isEnabled()) {
+            for (int i = accessibilityChangedFrom; i <= accessibilityChangedTo; i++) {
+                accessibility.onItemChanged(i);
+            }
+        }
+        accessibilityChangedFrom = Integer.MAX_VALUE;
+        accessibilityChangedTo = -1;
+        if (onTextChangedListener != null) {
+            onTextChangedListener.onTextChanged(this, model.asCharSequence());
+        }
+        if (model.isComplete() && onInputCompleteListener != null) {
+            onInputCompleteListener.onInputComplete(this, model.asCharSequence());
         }
     }
 
     /**
-     * 删除
+     * 在下一帧执行，API 16 以下退化为 post
      */
-    private String delete() {
-        String deleteText = null;
-        if (cursorPosition > 0) {
-            deleteText = text[cursorPosition - 1];
-            text[cursorPosition - 1] = null;
-            cursorPosition--;
-        } else if (cursorPosition == 0) {
-            deleteText = text[cursorPosition];
-            text[cursorPosition] = null;
+    void postOnNextFrame(Runnable action) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postOnAnimation(action);
+        } else {
+            post(action);
+        }
+    }
+
+    /**
+     * 在光标处插入文字，只接受过滤器允许的字符，超出的部分忽略
+     *
+     * @param c 为空时忽略
+     * @return 实际插入的字符数
+     */
+    int insert(CharSequence c) {
+        if (c == null) {
+            return 0;
+        }
+        flushPendingKeys();
+        int oldPosition = model.getCursorPosition();
+        int inserted = model.insert(c);
+        if (inserted > 0) {
+            animateAdded(oldPosition, model.getCursorPosition());
+            onTextChanged(oldPosition, model.getCursorPosition());
         }
-        isInputComplete = false;
-        return deleteText;
+        return inserted;
     }
 
     /**
-     * 增加
+     * 删除光标前的 count 个字符
+     *
+     * @return 实际删除的字符数
      */
-    private String add(String c) {
-        String addText = null;
-        if (cursorPosition < itemSize) {
-            addText = c;
-            text[cursorPosition] = c;
-            cursorPosition++;
-            if (cursorPosition == itemSize) {
-                isInputComplete = true;
+    int deleteBefore(int count) {
+        flushPendingKeys();
+        int oldPosition = model.getCursorPosition();
+        if (style.animationEnable) {
+            //记录被删除的字符，淡出时绘制
+            CellAnimator animator = obtainAnimator();
+            for (int i = Math.max(0, oldPosition - count); i < oldPosition; i++) {
+                animator.startDelete(i, model.charAt(i));
             }
         }
-        return addText;
+        int deleted = model.deleteBefore(count);
+        if (deleted > 0) {
+            //刷新被删除的项和原来光标所在的项
+            onTextChanged(model.getCursorPosition(), oldPosition);
+        }
+        return deleted;
     }
 
     /**
@@ -287,131 +775,192 @@ public class InputView extends View {
      * @param paint
      */
     private void drawCipherText(Canvas canvas, Paint paint) {
-        //画笔初始化
-        paint.setColor(textColor);
-        paint.setTextSize(textSize);
-        paint.setTextAlign(Paint.Align.CENTER);
-        paint.setStyle(Paint.Style.FILL);
-        //文字居中的处理
-        Rect r = new Rect();
-        canvas.getClipBounds(r);
-        int cHeight = r.height();
-        paint.getTextBounds(CIPHER_TEXT, 0, CIPHER_TEXT.length(), r);
-        float y = cHeight / 2f + r.height() / 2f - r.bottom;
+        boolean glyphAtlasEnable = style.glyphAtlasEnable;
+        boolean cipherEnable = style.cipherEnable;
+        if (glyphAtlasEnable && glyphAtlas == null) {
+            glyphAtlas = GlyphAtlas.obtain(style.textSize, style.textColor, paint.getTypeface(), CIPHER_TEXT);
+        }
 
+        //有动画时还需要绘制正在淡出的已删除项
+        int length = model.length();
+        boolean animating = animator != null && animator.isRunning();
+        int last = animating ? lastVisibleItem : Math.min(lastVisibleItem, length - 1);
         //根据输入的密码位数，进行for循环绘制
-        for (int i = 0; i < text.length; i++) {
-            if (!TextUtils.isEmpty(text[i])) {
-                // x = paddingLeft + 单个密码框大小/2 + ( 密码框大小 + 密码框间距 ) * i
-                // y = paddingTop + 文字居中所需偏移量
-                if (cipherEnable) {
-                    //没有开启明文显示，绘制密码密文
-                    canvas.drawText(CIPHER_TEXT,
-                            (getPaddingLeft() + itemWidth / 2) + (itemWidth + itemPadding) * i,
-                            getPaddingTop() + y, paint);
-                } else {
-                    //明文显示，直接绘制密码
-                    canvas.drawText(text[i],
-                            (getPaddingLeft() + itemWidth / 2) + (itemWidth + itemPadding) * i,
-                            getPaddingTop() + y, paint);
-                }
+        for (int i = firstVisibleItem; i <= last; i++) {
+            int type = animating ? animator.getType(i) : CellAnimator.NONE;
+            if (type == CellAnimator.ENTER && i < length) {
+                drawAnimatedText(canvas, paint, i, model.charAt(i), animator.getFraction(i));
+                continue;
+            }
+            if (type == CellAnimator.DELETE && i >= length) {
+                drawAnimatedText(canvas, paint, i, animator.getDeletedChar(i), 1 - animator.getFraction(i));
+                continue;
+            }
+            if (i >= length) {
+                continue;
             }
+            // x = 第 i 项的中心, y = 预先计算好的文字基线
+            frameDrawCalls++;
+            if (glyphAtlasEnable && glyphAtlas.draw(canvas, cipherEnable ? CIPHER_TEXT.charAt(0) : model.charAt(i),
+                    itemCenterX[i], textBaseline, glyphRect, null)) {
+                //图集中有该字符，已直接拷贝位图
+                continue;
+            }
+            drawItemText(canvas, paint, model.charAt(i), cipherEnable, itemCenterX[i], textBaseline, glyph);
         }
     }
 
     /**
-     * 绘制光标
+     * 绘制一项的文字，onDraw 和快照共用
      *
-     * @param canvas
-     * @param paint
+     * @param glyph 长度为 1 的缓冲，避免创建字符串，不同线程需要使用不同的缓冲
      */
-    private void drawCursor(Canvas canvas, Paint paint) {
-        //画笔初始化
-        paint.setColor(cursorColor);
-        paint.setStrokeWidth(cursorWidth);
-        paint.setStyle(Paint.Style.FILL);
-        //光标未显示 && 开启光标 && 输入位数未满 && 获得焦点
-        if (!isCursorShowing && isCursorEnable && !isInputComplete && hasFocus()) {
-            // 起始点x = paddingLeft + 单个密码框大小 / 2 + (单个密码框大小 + 密码框间距) * 光标下标
-            // 起始点y = paddingTop + (单个密码框大小 - 光标大小) / 2
-            // 终止点x = 起始点x
-            // 终止点y = 起始点y + 光标高度
-            canvas.drawLine((getPaddingLeft() + itemWidth / 2) + (itemWidth + itemPadding) * cursorPosition,
-                    getPaddingTop() + (itemHeight - cursorHeight) / 2,
-                    (getPaddingLeft() + itemWidth / 2) + (itemWidth + itemPadding) * cursorPosition,
-                    getPaddingTop() + (itemHeight + cursorHeight) / 2,
-                    paint);
+    static void drawItemText(Canvas canvas, Paint paint, char c, boolean cipherEnable, float centerX, float baseline,
+                             char[] glyph) {
+        if (cipherEnable) {
+            //没有开启明文显示，绘制密码密文
+            canvas.drawText(CIPHER_TEXT, centerX, baseline, paint);
+        } else {
+            //明文显示，直接绘制密码
+            glyph[0] = c;
+            canvas.drawText(glyph, 0, 1, centerX, baseline, paint);
         }
     }
 
     /**
-     * 绘制密码框下划线
+     * 绘制动画中的一项，以项的中心缩放并改变透明度
+     *
+     * @param visible 0 为完全消失，1 为正常显示
+     */
+    private void drawAnimatedText(Canvas canvas, Paint paint, int index, char c, float visible) {
+        animationPaint.set(paint);
+        animationPaint.setAlpha((int) (paint.getAlpha() * visible));
+        float scale = 0.5f + 0.5f * visible;
+        int saveCount = canvas.save();
+        canvas.scale(scale, scale, itemCenterX[index], (cursorStartY + cursorStopY) / 2);
+        drawItemText(canvas, animationPaint, c, style.cipherEnable, itemCenterX[index], textBaseline, glyph);
+        canvas.restoreToCount(saveCount);
+        frameDrawCalls++;
+    }
+
+    /**
+     * 输入完毕时用文字颜色高亮每一项，随后淡出
      *
      * @param canvas
-     * @param paint
      */
-    private void drawUnderLine(Canvas canvas, Paint paint) {
-        //画笔初始化
-        paint.reset();
-        paint.setColor(underLineColor);
-        paint.setStrokeWidth(border);
-        paint.setStyle(Paint.Style.FILL);
-        for (int i = 0; i < itemSize; i++) {
-            //根据密码位数for循环绘制直线
-            // 起始点x为paddingLeft + (单个密码框大小 + 密码框边距) * i , 起始点y为paddingTop + 单个密码框大小
-            // 终止点x为 起始点x + 单个密码框大小 , 终止点y与起始点一样不变
-            canvas.drawLine(getPaddingLeft() + (itemWidth + itemPadding) * i, getPaddingTop() + itemHeight - border / 2,
-                    getPaddingLeft() + (itemWidth + itemPadding) * i + itemWidth, getPaddingTop() + itemHeight - border / 2,
-                    paint);
+    private void drawHighlight(Canvas canvas) {
+        if (animator == null || !animator.isRunning()) {
+            return;
+        }
+        for (int i = firstVisibleItem; i <= lastVisibleItem; i++) {
+            if (animator.getType(i) == CellAnimator.COMPLETE) {
+                highlightPaint.setColor(style.textColor);
+                highlightPaint.setAlpha((int) (0x60 * (1 - animator.getFraction(i))));
+                canvas.drawRect(itemRects[i], highlightPaint);
+                frameDrawCalls++;
+            }
         }
     }
 
-    private void drawRect(Canvas canvas, Paint paint) {
-        paint.reset();
-        paint.setColor(rectColor);
-        paint.setStrokeWidth(border);
-        paint.setStyle(Paint.Style.STROKE);
-        Rect rect;
-        for (int i = 0; i < itemSize; i++) {
-            int startX = getPaddingLeft() + (itemWidth + itemPadding) * i + border / 2;
-            int startY = getPaddingTop() + border / 2;
-            int stopX = getPaddingLeft() + (itemWidth + itemPadding) * i + itemWidth - border / 2;
-            int stopY = getPaddingTop() + itemHeight - border / 2;
-
-            rect = new Rect(startX, startY, stopX, stopY);
-            canvas.drawRect(rect, paint);
+    /**
+     * 绘制光标
+     *
+     * @param canvas
+     * @param paint
+     */
+    private void drawCursor(Canvas canvas, Paint paint) {
+        //光标未显示 && 开启光标 && 输入位数未满 && 获得焦点
+        int cursorPosition = model.getCursorPosition();
+        if (!isCursorShowing && style.isCursorEnable && !model.isComplete() && hasFocus()
+                && cursorPosition >= firstVisibleItem && cursorPosition <= lastVisibleItem) {
+            // 起始点x = 光标所在项的中心, 终止点x = 起始点x
+            canvas.drawLine(itemCenterX[cursorPosition], cursorStartY,
+                    itemCenterX[cursorPosition], cursorStopY, paint);
+            frameDrawCalls++;
         }
     }
 
-
-    private void drawFill(Canvas canvas, Paint paint) {
-        paint.reset();
-        paint.setColor(fillColor);
-        paint.setStyle(Paint.Style.FILL);
-        Rect rect;
-        for (int i = 0; i < itemSize; i++) {
-            int startX = getPaddingLeft() + (itemWidth + itemPadding) * i;
-            int startY = getPaddingTop();
-            int stopX = getPaddingLeft() + (itemWidth + itemPadding) * i + itemWidth;
-            int stopY = getPaddingTop() + itemHeight;
-            rect = new Rect(startX, startY, stopX, stopY);
-            canvas.drawRect(rect, paint);
+    /**
+     * 在左上角绘制统计数据，只用于调试
+     *
+     * @param canvas
+     */
+    private void drawMetricsOverlay(Canvas canvas) {
+        if (metricsPaint == null) {
+            metricsPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            metricsPaint.setColor(Color.MAGENTA);
+            metricsPaint.setTextSize(sp2px(8));
         }
+        float lineHeight = metricsPaint.getFontSpacing();
+        float y = lineHeight;
+        metricsText.setLength(0);
+        metricsText.append("draw ").append(metrics.getAverageDrawTimeNanos() / 1000).append("us ")
+                .append(metrics.getLastFrameDrawCalls()).append(" calls");
+        canvas.drawText(metricsText, 0, metricsText.length(), getScrollX(), y, metricsPaint);
+        y += lineHeight;
+        metricsText.setLength(0);
+        metricsText.append("frames ").append(metrics.getFrames())
+                .append("/inval ").append(metrics.getInvalidations())
+                .append(" blink ").append(metrics.getCursorBlinkFrames());
+        canvas.drawText(metricsText, 0, metricsText.length(), getScrollX(), y, metricsPaint);
+        y += lineHeight;
+        metricsText.setLength(0);
+        metricsText.append("measure ").append(metrics.getMeasurePasses())
+                .append(" input ").append(metrics.getInputEventsPerSecond()).append("/s");
+        canvas.drawText(metricsText, 0, metricsText.length(), getScrollX(), y, metricsPaint);
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        if (event.getAction() == MotionEvent.ACTION_DOWN) {
-            /**
-             * 弹出软键盘
-             */
-            requestFocus();
-            inputManager.showSoftInput(this, InputMethodManager.SHOW_FORCED);
-            return true;
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                showSoftInput();
+                lastTouchX = event.getX();
+                isDragging = false;
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (maxScrollX <= 0) {
+                    break;
+                }
+                float dx = lastTouchX - event.getX();
+                if (!isDragging && Math.abs(dx) > touchSlop) {
+                    //超过最小距离后开始拖动，不再让父控件拦截
+                    isDragging = true;
+                    if (getParent() != null) {
+                        getParent().requestDisallowInterceptTouchEvent(true);
+                    }
+                }
+                if (isDragging) {
+                    scrollTo(Math.max(0, Math.min(getScrollX() + (int) dx, maxScrollX)), 0);
+                    lastTouchX = event.getX();
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                isDragging = false;
+                break;
         }
         return super.onTouchEvent(event);
     }
 
+    /**
+     * 获得焦点并弹出软键盘
+     */
+    void showSoftInput() {
+        requestFocus();
+        inputManager.showSoftInput(this, InputMethodManager.SHOW_FORCED);
+    }
+
+    /**
+     * 触摸点所在的项，常数时间，与项数无关
+     *
+     * @param x 控件坐标系中的x坐标
+     * @return 项的位置，落在间距中或超出范围时返回 -1
+     */
+    public int getItemAt(float x) {
+        return cellLayout.getCellAt((int) x + getScrollX());
+    }
+
     @Override
     public void onWindowFocusChanged(boolean hasWindowFocus) {
         super.onWindowFocusChanged(hasWindowFocus);
@@ -423,104 +972,738 @@ public class InputView extends View {
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        //cursorFlashTime为光标闪动的间隔时间
-        timer.scheduleAtFixedRate(timerTask, 0, cursorFlashTime);
+        isAttached = true;
+        updateCursorBlink();
+        MemoryTrimmer.getInstance(getContext()).register(this);
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
-        timer.cancel();
+        isAttached = false;
+        flushPendingKeys();
+        updateCursorBlink();
+        if (animator != null) {
+            animator.cancel();
+        }
+        //RecyclerView 中回收的控件不再占用缓存
+        MemoryTrimmer.getInstance(getContext()).unregister(this);
+        releaseCaches();
     }
 
-    private int dp2px(float dp) {
-        float scale = getContext().getResources().getDisplayMetrics().density;
-        return (int) (dp * scale + 0.5f);
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        updateCursorBlink();
     }
 
-    private int sp2px(float spValue) {
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateCursorBlink();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateCursorBlink();
+        if (visibility != VISIBLE) {
+            releaseCaches();
+        }
+    }
+
+    /**
+     * 丢弃背景录制、字形图集和变大的按键队列，下一次绘制或输入时按需重建
+     * 离开窗口、窗口不可见或内存不足时调用
+     */
+    void releaseCaches() {
+        frameCache = null;
+        isFrameCacheValid = false;
+        glyphAtlas = null;
+        if (pendingKeyCount == 0 && pendingKeys.length > 16) {
+            pendingKeys = new char[16];
+        }
+    }
+
+    /**
+     * 是否持有可以直接回放的背景录制，只用于测试
+     */
+    boolean isFrameCached() {
+        return frameCache != null && isFrameCacheValid;
+    }
+
+    /**
+     * 根据当前状态决定是否需要闪动光标：已添加到窗口 && 可见 && 获得焦点 && 开启光标 && 输入位数未满
+     */
+    private void updateCursorBlink() {
+        if (isAttached && isShown() && getWindowVisibility() == VISIBLE && hasFocus()
+                && style.isCursorEnable && !model.isComplete()) {
+            CursorBlinker.getInstance().register(this);
+        } else {
+            CursorBlinker.getInstance().unregister(this);
+        }
+    }
+
+    /**
+     * 开始闪动时立即显示光标
+     *
+     * @return 下一次闪动的时间
+     */
+    long resetCursorBlink(long now) {
+        isCursorShowing = false;
+        invalidateItems(model.getCursorPosition(), model.getCursorPosition());
+        //cursorFlashTime为光标闪动的间隔时间
+        nextBlinkTime = now + style.cursorFlashTime;
+        return nextBlinkTime;
+    }
+
+    /**
+     * 由 {@link CursorBlinker} 在主线程调用，到时间则切换光标状态
+     *
+     * @return 下一次闪动的时间
+     */
+    long onCursorBlink(long now) {
+        if (now >= nextBlinkTime) {
+            isCursorShowing = !isCursorShowing;
+            if (metrics != null) {
+                metrics.onCursorBlink();
+            }
+            invalidateItems(model.getCursorPosition(), model.getCursorPosition());
+            nextBlinkTime = now + style.cursorFlashTime;
+        }
+        return nextBlinkTime;
+    }
+
+    private int sp2px(float spValue) {
         float fontScale = getContext().getResources().getDisplayMetrics().scaledDensity;
         return (int) (spValue * fontScale + 0.5f);
     }
 
+    @Override
+    public AccessibilityNodeProvider getAccessibilityNodeProvider() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return super.getAccessibilityNodeProvider();
+        }
+        if (accessibility == null) {
+            accessibility = new InputViewAccessibility(this);
+        }
+        return accessibility;
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        if (accessibility != null && accessibilityManager.isTouchExplorationEnabled()
+                && accessibility.dispatchHoverEvent(event)) {
+            return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        info.setClassName(InputView.class.getName());
+        info.setPassword(style.cipherEnable);
+        info.setFocusable(true);
+    }
+
+    /**
+     * 无障碍服务朗读的内容，开启密文时不读出已输入的字符
+     *
+     * @param index 项的位置
+     */
+    CharSequence getItemDescription(int index) {
+        if (index >= model.length()) {
+            return getResources().getString(R.string.inputview_item_empty, index + 1);
+        }
+        if (style.cipherEnable) {
+            return getResources().getString(R.string.inputview_item_hidden, index + 1);
+        }
+        return getResources().getString(R.string.inputview_item_text, index + 1, String.valueOf(model.charAt(index)));
+    }
+
+    @Override
+    public boolean onCheckIsTextEditor() {
+        return true;
+    }
+
     @Override
     public InputConnection onCreateInputConnection(EditorInfo outAttrs) {
-        outAttrs.inputType = InputType.TYPE_CLASS_NUMBER; //输入类型为数字
-        return super.onCreateInputConnection(outAttrs);
+        flushPendingKeys();
+        outAttrs.inputType = getInputType(style.filter);
+        outAttrs.initialSelStart = model.getCursorPosition();
+        outAttrs.initialSelEnd = model.getCursorPosition();
+        return new InputViewConnection(this);
+    }
+
+    /**
+     * 根据过滤器选择软键盘：只有数字时使用数字键盘，否则使用不联想的文本键盘，只允许大写时自动大写
+     */
+    private static int getInputType(CharFilter filter) {
+        if (filter.isDigitsOnly()) {
+            return InputType.TYPE_CLASS_NUMBER;
+        }
+        int inputType = InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_VISIBLE_PASSWORD
+                | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS;
+        if (filter.isUpperCaseOnly()) {
+            inputType |= InputType.TYPE_TEXT_FLAG_CAP_CHARACTERS;
+        }
+        return inputType;
     }
 
     @Override
     protected Parcelable onSaveInstanceState() {
-        Bundle bundle = new Bundle();
-        bundle.putParcelable("superState", super.onSaveInstanceState());
-        bundle.putStringArray("text", text);
-        bundle.putInt("cursorPosition", cursorPosition);
-        return bundle;
+        flushPendingKeys();
+        SavedState savedState = new SavedState(super.onSaveInstanceState());
+        //只保存已输入的部分，光标位置即为其长度
+        savedState.text = model.toString();
+        return savedState;
     }
 
     @Override
     protected void onRestoreInstanceState(Parcelable state) {
-        if (state instanceof Bundle) {
-            Bundle bundle = (Bundle) state;
-            text = bundle.getStringArray("text");
-            cursorPosition = bundle.getInt("cursorPosition");
-            state = bundle.getParcelable("superState");
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        if (savedState.text != null) {
+            flushPendingKeys();
+            //按当前的项数和过滤器重新输入，项数变小时截断，不再允许的字符跳过，不播放输入动画
+            int oldLength = model.length();
+            model.clear();
+            model.insert(savedState.text);
+            int to = Math.max(oldLength, model.length());
+            if (to > 0) {
+                //恢复的内容和输入变化一样通知监听、软键盘和无障碍服务
+                onTextChanged(0, to);
+            }
         }
-        super.onRestoreInstanceState(state);
+    }
+
+    /**
+     * 保存的状态：已输入的内容，光标位置即为其长度
+     */
+    static class SavedState extends BaseSavedState {
+        String text;//已输入的内容
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            text = in.readString();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeString(text);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
     }
 
     /**
      * 获取输入的内容
      */
     public String getText() {
-        if (TextUtils.isEmpty(text[0])) {
-            return "";
-        } else {
-            StringBuilder sb = new StringBuilder();
-            for (String s : text) {
-                if (!TextUtils.isEmpty(s)) {
-                    sb.append(s);
-                }
-            }
-            return sb.toString();
+        flushPendingKeys();
+        return model.toString();
+    }
+
+    /**
+     * 从任意线程设置输入的内容，例如短信验证码或推送回调
+     * <p>
+     * 内容放入一个无锁的单槽位中，在主线程的下一帧通过 {@link #setText(CharSequence)} 应用。
+     * 应用前多次调用只保留最后一次的内容；按键和软键盘输入都在主线程处理，应用时按顺序排在它们之后。
+     * 除此方法外，InputView 的其他方法都只能在主线程调用。
+     *
+     * @param text 为空时清空内容
+     */
+    public void postText(CharSequence text) {
+        //复制为不可变的 String，调用方之后修改 text 不会影响结果
+        String value = text == null ? "" : text.toString();
+        if (pendingText.getAndSet(value) == null) {
+            //槽位原来为空，说明还没有安排应用
+            MAIN_HANDLER.post(scheduleTextRunnable);
         }
     }
 
+    private void applyPendingText() {
+        String text = pendingText.getAndSet(null);
+        if (text != null) {
+            setText(text);
+        }
+    }
+
+    /**
+     * 设置输入的内容，只接受过滤器允许的字符，超出 itemSize 的部分忽略，只刷新一次
+     *
+     * @param text 为空时清空内容
+     */
+    public void setText(CharSequence text) {
+        beginBatchEdit();
+        deleteBefore(model.length());
+        insert(text);
+        endBatchEdit();
+    }
+
+    /**
+     * 在已输入的内容后追加，只接受过滤器允许的字符，超出 itemSize 的部分忽略，只刷新一次
+     *
+     * @param text 为空时忽略
+     */
+    public void append(CharSequence text) {
+        insert(text);
+    }
+
+    /**
+     * 清空输入的内容
+     */
+    public void clear() {
+        flushPendingKeys();
+        deleteBefore(model.length());
+    }
+
+    /**
+     * 将输入的内容复制到 dest 中，不创建新对象
+     *
+     * @param dest 长度至少为已输入的字符数
+     * @return 已输入的字符数
+     */
+    public int getText(char[] dest) {
+        flushPendingKeys();
+        return model.getText(dest);
+    }
+
+    /**
+     * 获取输入内容的只读视图，内容随输入变化，调用时不会创建新对象
+     */
+    public CharSequence getTextSequence() {
+        flushPendingKeys();
+        return model.asCharSequence();
+    }
+
     public void setItemSize(int itemSize) {
-        this.itemSize = itemSize;
+        edit().setItemSize(itemSize).apply();
     }
 
     public void setBorder(int border) {
-        this.border = border;
+        edit().setBorder(border).apply();
     }
 
     public void setRectColor(int rectColor) {
-        this.rectColor = rectColor;
-        postInvalidate();
+        edit().setRectColor(rectColor).apply();
     }
 
     public void setUnderLineColor(int underLineColor) {
-        this.underLineColor = underLineColor;
-        postInvalidate();
+        edit().setUnderLineColor(underLineColor).apply();
     }
 
     public void setFillColor(int fillColor) {
-        this.fillColor = fillColor;
-        postInvalidate();
+        edit().setFillColor(fillColor).apply();
     }
 
     public void setTextSize(int textSize) {
-        this.textSize = textSize;
-        postInvalidate();
+        edit().setTextSize(textSize).apply();
     }
 
     public void setTextColor(int textColor) {
-        this.textColor = textColor;
-        postInvalidate();
+        edit().setTextColor(textColor).apply();
     }
 
     public void setCursorColor(int cursorColor) {
-        this.cursorColor = cursorColor;
-        postInvalidate();
+        edit().setCursorColor(cursorColor).apply();
+    }
+
+    /**
+     * 是否使用共享的字形图集绘制数字和密文符号，软件绘制或较旧的 GPU 上可以减少每帧的文字排版开销
+     */
+    public void setGlyphAtlasEnable(boolean glyphAtlasEnable) {
+        edit().setGlyphAtlasEnable(glyphAtlasEnable).apply();
+    }
+
+    /**
+     * 宽度不足时是否保持项宽度并横向滚动，适合很长的序列号或恢复码
+     */
+    public void setScrollEnable(boolean scrollEnable) {
+        edit().setScrollEnable(scrollEnable).apply();
+    }
+
+    /**
+     * 是否开启输入、删除和输入完毕的动画
+     */
+    public void setAnimationEnable(boolean animationEnable) {
+        edit().setAnimationEnable(animationEnable).apply();
+    }
+
+    /**
+     * 把当前状态（模式、每一项、光标、明文或密文）绘制为 Bitmap，用于共享元素动画、缩略图或截图测试
+     * <p>
+     * 在主线程复制内容、几何和画笔，并录制可见项的背景，绘制在 executor 上执行，不阻塞主线程。
+     * 不包含动画的中间状态。必须在主线程调用，控件需要已完成布局。
+     *
+     * @param executor 执行绘制的线程
+     * @param reuse    可以复用的 Bitmap，可修改且与控件大小一致时直接绘制到其中，可以为空
+     * @param listener 完成回调，在主线程调用
+     */
+    public void snapshot(Executor executor, Bitmap reuse, OnSnapshotListener listener) {
+        if (itemRects == null || getWidth() <= 0 || getHeight() <= 0) {
+            throw new IllegalStateException("InputView has not been laid out");
+        }
+        flushPendingKeys();
+        int width = getWidth();
+        int height = getHeight();
+        int scrollX = getScrollX();
+        //只录制可见项的背景
+        Picture background = new Picture();
+        Canvas recordingCanvas = background.beginRecording(scrollX + width, height);
+        cellRenderer.draw(recordingCanvas, cellLayout.getFirstVisible(scrollX), cellLayout.getLastVisible(scrollX + width));
+        background.endRecording();
+        char[] text = new char[model.length()];
+        model.getText(text);
+        int cursorPosition = model.getCursorPosition();
+        if (isCursorShowing || !style.isCursorEnable || model.isComplete() || !hasFocus()) {
+            cursorPosition = -1;
+        }
+        executor.execute(new InputViewSnapshot(width, height, scrollX, background, text, itemCenterX.clone(),
+                textBaseline, style.cipherEnable, new Paint(style.textPaint), cursorPosition, cursorStartY,
+                cursorStopY, new Paint(style.cursorPaint), reuse, listener, MAIN_HANDLER));
+    }
+
+    /**
+     * 左右抖动，用于提示输入错误，例如校验失败后调用，不受 animationEnable 影响
+     */
+    public void shake() {
+        obtainAnimator().shake(dp2px(8));
+    }
+
+    private int dp2px(float dp) {
+        float scale = getContext().getResources().getDisplayMetrics().density;
+        return (int) (dp * scale + 0.5f);
+    }
+
+    public CharFilter getFilter() {
+        return style.filter;
+    }
+
+    /**
+     * 设置允许输入的字符，已输入的内容不受影响，软键盘类型随之切换
+     * 例如 {@link CharFilter#HEX}、{@link CharFilter#UPPERCASE} 或 {@code CharFilter.of("ACGT", true)}
+     */
+    public void setFilter(CharFilter filter) {
+        edit().setFilter(filter).apply();
+    }
+
+    public InputViewStyle getStyle() {
+        return style;
+    }
+
+    /**
+     * 使用共享的样式，RecyclerView 绑定时可以直接设置已解析好的样式
+     */
+    public void setStyle(InputViewStyle style) {
+        applyStyle(style);
+    }
+
+    /**
+     * 开始修改多个属性，{@link Editor#apply()} 时统一生效，最多只请求一次布局和一次重绘，
+     * 开启滚动且滚动位置需要修正时，系统另外在同一帧刷新一次
+     * <pre>
+     * inputView.edit()
+     *         .setItemSize(6)
+     *         .setRectColor(Color.BLUE)
+     *         .setTextColor(Color.BLUE)
+     *         .apply();
+     * </pre>
+     */
+    public Editor edit() {
+        return new Editor(style.buildUpon());
+    }
+
+    /**
+     * 切换样式，比较新旧样式，只做必要的工作：
+     * 影响尺寸的属性变化时请求一次布局，影响几何的属性变化时重新计算每一项，其余只重绘一次
+     */
+    private void applyStyle(InputViewStyle newStyle) {
+        InputViewStyle oldStyle = style;
+        if (oldStyle == newStyle) {
+            return;
+        }
+        //项数减少会截断内容，先应用队列中的按键
+        flushPendingKeys();
+        //中间步骤不刷新单独的项，最后统一刷新
+        isRedrawDeferred = true;
+        int oldLength = model.length();
+        style = newStyle;
+        //影响控件尺寸
+        boolean layoutChanged = oldStyle.itemSize != newStyle.itemSize
+                || oldStyle.itemPadding != newStyle.itemPadding
+                || oldStyle.itemWidth != newStyle.itemWidth
+                || oldStyle.itemHeight != newStyle.itemHeight
+                || oldStyle.scrollEnable != newStyle.scrollEnable;
+        //影响每一项的区域、光标或文字位置
+        boolean geometryChanged = layoutChanged
+                || oldStyle.border != newStyle.border
+                || oldStyle.textSize != newStyle.textSize;
+        if (layoutChanged) {
+            cellLayout.setItemSize(newStyle.itemSize);
+            cellLayout.setItemWidth(newStyle.itemWidth);
+            cellLayout.setItemHeight(newStyle.itemHeight);
+            cellLayout.setItemPadding(newStyle.itemPadding);
+            //先按新的项数调整缓冲，超出的内容截断
+            model.setCapacity(newStyle.itemSize);
+        }
+        if (oldStyle.filter != newStyle.filter) {
+            model.setFilter(newStyle.filter);
+            inputManager.restartInput(this);
+        }
+        if (oldStyle.mode != newStyle.mode) {
+            cellRenderer = createRenderer(newStyle.mode);
+        }
+        if (oldStyle.textSize != newStyle.textSize || oldStyle.textColor != newStyle.textColor
+                || oldStyle.glyphAtlasEnable != newStyle.glyphAtlasEnable) {
+            glyphAtlas = null;
+        }
+        if (!newStyle.animationEnable && animator != null) {
+            animator.cancel();
+        }
+        if (geometryChanged) {
+            measureItems();
+        } else if (oldStyle.mode != newStyle.mode || oldStyle.rectColor != newStyle.rectColor
+                || oldStyle.underLineColor != newStyle.underLineColor || oldStyle.fillColor != newStyle.fillColor) {
+            onCellStyleChanged();
+        }
+        if (model.length() < oldLength) {
+            //被截断的内容和输入变化一样通知监听、软键盘和无障碍服务
+            onTextChanged(model.length(), oldLength);
+        } else if (layoutChanged || oldStyle.isCursorEnable != newStyle.isCursorEnable) {
+            updateCursorBlink();
+        }
+        if (layoutChanged) {
+            requestLayout();
+            if (accessibility != null && accessibilityManager.isEnabled()) {
+                //项数或位置变化，虚拟节点需要整体更新
+                sendAccessibilityEvent(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+            }
+        }
+        isRedrawDeferred = false;
+        invalidate();
+    }
+
+    /**
+     * 记录多个属性的修改，{@link #apply()} 时一次生效
+     */
+    public final class Editor {
+        private final InputViewStyle.Builder builder;
+
+        private Editor(InputViewStyle.Builder builder) {
+            this.builder = builder;
+        }
+
+        public Editor setItemSize(int itemSize) {
+            builder.setItemSize(itemSize);
+            return this;
+        }
+
+        public Editor setItemPadding(int itemPadding) {
+            builder.setItemPadding(itemPadding);
+            return this;
+        }
+
+        public Editor setItemWidth(int itemWidth) {
+            builder.setItemWidth(itemWidth);
+            return this;
+        }
+
+        public Editor setItemHeight(int itemHeight) {
+            builder.setItemHeight(itemHeight);
+            return this;
+        }
+
+        public Editor setBorder(int border) {
+            builder.setBorder(border);
+            return this;
+        }
+
+        public Editor setRectColor(int rectColor) {
+            builder.setRectColor(rectColor);
+            return this;
+        }
+
+        public Editor setUnderLineColor(int underLineColor) {
+            builder.setUnderLineColor(underLineColor);
+            return this;
+        }
+
+        public Editor setFillColor(int fillColor) {
+            builder.setFillColor(fillColor);
+            return this;
+        }
+
+        public Editor setTextSize(int textSize) {
+            builder.setTextSize(textSize);
+            return this;
+        }
+
+        public Editor setTextColor(int textColor) {
+            builder.setTextColor(textColor);
+            return this;
+        }
+
+        public Editor setCursorFlashTime(long cursorFlashTime) {
+            builder.setCursorFlashTime(cursorFlashTime);
+            return this;
+        }
+
+        public Editor setCursorEnable(boolean cursorEnable) {
+            builder.setCursorEnable(cursorEnable);
+            return this;
+        }
+
+        public Editor setCipherEnable(boolean cipherEnable) {
+            builder.setCipherEnable(cipherEnable);
+            return this;
+        }
+
+        public Editor setCursorColor(int cursorColor) {
+            builder.setCursorColor(cursorColor);
+            return this;
+        }
+
+        public Editor setGlyphAtlasEnable(boolean glyphAtlasEnable) {
+            builder.setGlyphAtlasEnable(glyphAtlasEnable);
+            return this;
+        }
+
+        public Editor setScrollEnable(boolean scrollEnable) {
+            builder.setScrollEnable(scrollEnable);
+            return this;
+        }
+
+        public Editor setAnimationEnable(boolean animationEnable) {
+            builder.setAnimationEnable(animationEnable);
+            return this;
+        }
+
+        public Editor setFilter(CharFilter filter) {
+            builder.setFilter(filter);
+            return this;
+        }
+
+        public Editor setMode(Mode mode) {
+            builder.setMode(mode);
+            return this;
+        }
+
+        /**
+         * 应用所有修改，必须在主线程调用
+         */
+        public void apply() {
+            applyStyle(builder.build());
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        if (metrics != null) {
+            metrics.onInvalidate();
+        }
+    }
+
+    @Override
+    public void invalidate(int l, int t, int r, int b) {
+        super.invalidate(l, t, r, b);
+        if (metrics != null) {
+            metrics.onInvalidate();
+        }
+    }
+
+    /**
+     * 设置自定义的背景绘制策略，设置后 {@link #getMode()} 不再反映实际样式，
+     * 调用 {@link #setMode(Mode)} 可恢复内置样式
+     */
+    public void setCellRenderer(CellRenderer cellRenderer) {
+        this.cellRenderer = cellRenderer;
+        onCellStyleChanged();
+        invalidate();
+    }
+
+    public int getItemSize() {
+        return cellLayout.getItemSize();
+    }
+
+    /**
+     * 获取第 index 项的区域
+     *
+     * @param outRect 用于保存结果
+     */
+    public void getItemRect(int index, Rect outRect) {
+        if (itemRects == null) {
+            //还没有测量
+            outRect.setEmpty();
+            return;
+        }
+        outRect.set(itemRects[index]);
+    }
+
+    public int getBorder() {
+        return style.border;
+    }
+
+    public int getRectColor() {
+        return style.rectColor;
+    }
+
+    public int getUnderLineColor() {
+        return style.underLineColor;
+    }
+
+    public int getFillColor() {
+        return style.fillColor;
+    }
+
+    /**
+     * 开启或关闭绘制与输入统计
+     */
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        if (!metricsEnabled) {
+            metrics = null;
+            isMetricsOverlayEnabled = false;
+        } else if (metrics == null) {
+            metrics = new InputViewMetrics(InputViewMetrics.getAggregate());
+        }
+    }
+
+    /**
+     * 获取该控件的统计数据，未开启时返回 null
+     */
+    public InputViewMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 在控件上绘制统计数据，开启时同时开启统计，只用于调试
+     */
+    public void setMetricsOverlayEnabled(boolean metricsOverlayEnabled) {
+        if (metricsOverlayEnabled) {
+            setMetricsEnabled(true);
+        }
+        isMetricsOverlayEnabled = metricsOverlayEnabled;
+        invalidate();
     }
 }
@@ -0,0 +1,182 @@
+package com.qiqi.inputview;
+
+import android.annotation.TargetApi;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Bundle;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+
+/**
+ * 为每一项提供一个虚拟的无障碍节点
+ * <p>
+ * 节点的区域直接取自每一项预先计算好的区域，只在无障碍服务查询时创建。
+ * 内容变化时只为发生变化的项发送事件，不会重建整个节点树，每次输入的开销与项数无关。
+ * 需要 API 16，只能在主线程使用。
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+final class InputViewAccessibility extends AccessibilityNodeProvider {
+    private static final int INVALID_ID = Integer.MIN_VALUE;
+
+    private final InputView view;
+    private final Rect itemRect = new Rect();//项在控件中的区域
+    private final int[] location = new int[2];//控件在屏幕中的位置
+    private int focusedItem = INVALID_ID;//获得无障碍焦点的项
+    private int hoveredItem = INVALID_ID;//触摸浏览中的项
+
+    InputViewAccessibility(InputView view) {
+        this.view = view;
+    }
+
+    @Override
+    public AccessibilityNodeInfo createAccessibilityNodeInfo(int virtualViewId) {
+        if (virtualViewId == View.NO_ID) {
+            AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain(view);
+            view.onInitializeAccessibilityNodeInfo(info);
+            for (int i = 0; i < view.getItemSize(); i++) {
+                info.addChild(view, i);
+            }
+            return info;
+        }
+        if (virtualViewId < 0 || virtualViewId >= view.getItemSize()) {
+            return null;
+        }
+        AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain(view, virtualViewId);
+        info.setPackageName(view.getContext().getPackageName());
+        info.setClassName(InputView.class.getName());
+        info.setParent(view);
+        info.setContentDescription(view.getItemDescription(virtualViewId));
+        info.setEnabled(view.isEnabled());
+        info.setPassword(view.getStyle().isCipherEnable());
+
+        //区域：项在控件中的位置减去滚动距离，再加上控件在屏幕中的位置
+        view.getItemRect(virtualViewId, itemRect);
+        itemRect.offset(-view.getScrollX(), -view.getScrollY());
+        info.setBoundsInParent(itemRect);
+        info.setVisibleToUser(view.isShown() && itemRect.intersect(0, 0, view.getWidth(), view.getHeight()));
+        view.getLocationOnScreen(location);
+        itemRect.offset(location[0], location[1]);
+        info.setBoundsInScreen(itemRect);
+
+        info.addAction(AccessibilityNodeInfo.ACTION_CLICK);
+        if (focusedItem == virtualViewId) {
+            info.setAccessibilityFocused(true);
+            info.addAction(AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS);
+        } else {
+            info.addAction(AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS);
+        }
+        return info;
+    }
+
+    @Override
+    public boolean performAction(int virtualViewId, int action, Bundle arguments) {
+        if (virtualViewId == View.NO_ID) {
+            return view.performAccessibilityAction(action, arguments);
+        }
+        if (virtualViewId < 0 || virtualViewId >= view.getItemSize()) {
+            return false;
+        }
+        switch (action) {
+            case AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS:
+                if (focusedItem == virtualViewId) {
+                    return false;
+                }
+                if (focusedItem != INVALID_ID) {
+                    sendEvent(focusedItem, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                }
+                focusedItem = virtualViewId;
+                view.invalidate();
+                sendEvent(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUSED);
+                return true;
+            case AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS:
+                if (focusedItem != virtualViewId) {
+                    return false;
+                }
+                focusedItem = INVALID_ID;
+                view.invalidate();
+                sendEvent(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                return true;
+            case AccessibilityNodeInfo.ACTION_CLICK:
+                //和点击控件一样弹出软键盘
+                view.showSoftInput();
+                sendEvent(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 触摸浏览时，把悬停事件转换为所在项的进入和离开事件
+     *
+     * @return 是否已处理
+     */
+    boolean dispatchHoverEvent(MotionEvent event) {
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_HOVER_ENTER:
+            case MotionEvent.ACTION_HOVER_MOVE:
+                int item = view.getItemAt(event.getX());
+                updateHoveredItem(item < 0 ? INVALID_ID : item);
+                return item >= 0;
+            case MotionEvent.ACTION_HOVER_EXIT:
+                if (hoveredItem != INVALID_ID) {
+                    updateHoveredItem(INVALID_ID);
+                    return true;
+                }
+                return false;
+        }
+        return false;
+    }
+
+    private void updateHoveredItem(int item) {
+        if (hoveredItem == item) {
+            return;
+        }
+        int previous = hoveredItem;
+        hoveredItem = item;
+        if (item != INVALID_ID) {
+            sendEvent(item, AccessibilityEvent.TYPE_VIEW_HOVER_ENTER);
+        }
+        if (previous != INVALID_ID) {
+            sendEvent(previous, AccessibilityEvent.TYPE_VIEW_HOVER_EXIT);
+        }
+    }
+
+    /**
+     * 该项的内容发生变化，只通知这一项
+     */
+    void onItemChanged(int index) {
+        if (index < 0 || index >= view.getItemSize()) {
+            return;
+        }
+        AccessibilityEvent event = obtainEvent(index, AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            event.setContentChangeTypes(AccessibilityEvent.CONTENT_CHANGE_TYPE_CONTENT_DESCRIPTION);
+        }
+        requestSendEvent(event);
+    }
+
+    private void sendEvent(int virtualViewId, int eventType) {
+        requestSendEvent(obtainEvent(virtualViewId, eventType));
+    }
+
+    private AccessibilityEvent obtainEvent(int virtualViewId, int eventType) {
+        AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
+        event.setPackageName(view.getContext().getPackageName());
+        event.setClassName(InputView.class.getName());
+        event.setContentDescription(view.getItemDescription(virtualViewId));
+        event.setEnabled(view.isEnabled());
+        event.setSource(view, virtualViewId);
+        return event;
+    }
+
+    private void requestSendEvent(AccessibilityEvent event) {
+        ViewParent parent = view.getParent();
+        if (parent != null) {
+            parent.requestSendAccessibilityEvent(view, event);
+        }
+    }
+}
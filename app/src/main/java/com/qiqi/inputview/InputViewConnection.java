@@ -0,0 +1,69 @@
+package com.qiqi.inputview;
+
+import android.view.inputmethod.BaseInputConnection;
+
+/**
+ * InputView 与输入法之间的连接
+ * <p>
+ * 输入法或自动填充通过 commitText 提交的整段文字直接写入控件，
+ * 一次提交或一次批量编辑只刷新一次，不再拆成多个按键事件。
+ */
+class InputViewConnection extends BaseInputConnection {
+    private final InputView inputView;
+    private int batchEditDepth;//该连接开启的批量编辑层数
+
+    InputViewConnection(InputView inputView) {
+        super(inputView, false);
+        this.inputView = inputView;
+    }
+
+    @Override
+    public boolean commitText(CharSequence text, int newCursorPosition) {
+        inputView.insert(text);
+        return true;
+    }
+
+    @Override
+    public boolean deleteSurroundingText(int beforeLength, int afterLength) {
+        //光标总是在已输入内容的末尾，光标之后没有内容
+        inputView.deleteBefore(beforeLength);
+        return true;
+    }
+
+    @Override
+    public boolean beginBatchEdit() {
+        batchEditDepth++;
+        inputView.beginBatchEdit();
+        return true;
+    }
+
+    @Override
+    public boolean endBatchEdit() {
+        if (batchEditDepth == 0) {
+            return false;
+        }
+        batchEditDepth--;
+        inputView.endBatchEdit();
+        return batchEditDepth > 0;
+    }
+
+    @Override
+    public void closeConnection() {
+        super.closeConnection();
+        //输入法断开时结束未完成的批量编辑，保证修改能刷新出来
+        while (batchEditDepth > 0) {
+            endBatchEdit();
+        }
+    }
+
+    @Override
+    public CharSequence getTextBeforeCursor(int length, int flags) {
+        CharSequence text = inputView.getTextSequence();
+        return text.subSequence(Math.max(0, text.length() - length), text.length());
+    }
+
+    @Override
+    public CharSequence getTextAfterCursor(int length, int flags) {
+        return "";
+    }
+}
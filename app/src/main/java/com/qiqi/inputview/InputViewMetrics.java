@@ -0,0 +1,159 @@
+package com.qiqi.inputview;
+
+import android.os.SystemClock;
+
+/**
+ * InputView 的绘制与输入统计
+ * <p>
+ * 通过 {@link InputView#setMetricsEnabled(boolean)} 开启，每个控件一份，
+ * 同时累加到 {@link #getAggregate()} 中。未开启时控件中只有一次判空，可以在正式版本中保留。
+ * 只能在主线程读取。
+ */
+public final class InputViewMetrics {
+    private static final long INPUT_RATE_WINDOW = 1000;//统计输入速率的时间窗口，毫秒
+    private static final InputViewMetrics AGGREGATE = new InputViewMetrics(null);
+
+    private final InputViewMetrics aggregate;//汇总统计，自身为汇总时为空
+
+    private long frames;//实际绘制的帧数
+    private long drawTimeNanos;//onDraw 总耗时
+    private long maxDrawTimeNanos;//单帧 onDraw 最大耗时
+    private long drawCalls;//绘制调用总次数
+    private int lastFrameDrawCalls;//上一帧的绘制调用次数
+    private long invalidations;//请求刷新的次数
+    private long cursorBlinkFrames;//光标闪动引起的刷新次数
+    private long measurePasses;//onMeasure 次数
+    private long inputEvents;//生效的内容变化次数，批量编辑和同一帧内的按键合并为一次
+    private long inputWindowStart;//当前统计窗口的开始时间
+    private int inputEventsInWindow;//当前统计窗口内的输入事件数
+    private int inputEventsPerSecond;//上一个完整窗口内每秒的输入事件数
+
+    /**
+     * 所有开启统计的控件的汇总
+     */
+    public static InputViewMetrics getAggregate() {
+        return AGGREGATE;
+    }
+
+    InputViewMetrics(InputViewMetrics aggregate) {
+        this.aggregate = aggregate;
+    }
+
+    void onFrameDrawn(long nanos, int frameDrawCalls) {
+        frames++;
+        drawTimeNanos += nanos;
+        maxDrawTimeNanos = Math.max(maxDrawTimeNanos, nanos);
+        drawCalls += frameDrawCalls;
+        lastFrameDrawCalls = frameDrawCalls;
+        if (aggregate != null) {
+            aggregate.onFrameDrawn(nanos, frameDrawCalls);
+        }
+    }
+
+    void onInvalidate() {
+        invalidations++;
+        if (aggregate != null) {
+            aggregate.onInvalidate();
+        }
+    }
+
+    void onCursorBlink() {
+        cursorBlinkFrames++;
+        if (aggregate != null) {
+            aggregate.onCursorBlink();
+        }
+    }
+
+    void onMeasure() {
+        measurePasses++;
+        if (aggregate != null) {
+            aggregate.onMeasure();
+        }
+    }
+
+    void onInputEvent() {
+        inputEvents++;
+        rollInputWindow(SystemClock.uptimeMillis());
+        inputEventsInWindow++;
+        if (aggregate != null) {
+            aggregate.onInputEvent();
+        }
+    }
+
+    /**
+     * 当前窗口已结束时计算速率并开始新的窗口，停止输入后读取时也会调用，速率随之归零
+     */
+    private void rollInputWindow(long now) {
+        if (now - inputWindowStart < INPUT_RATE_WINDOW) {
+            return;
+        }
+        //上一个窗口结束，超过一个窗口没有输入时速率为 0
+        inputEventsPerSecond = now - inputWindowStart < INPUT_RATE_WINDOW * 2
+                ? (int) (inputEventsInWindow * 1000L / INPUT_RATE_WINDOW) : 0;
+        inputWindowStart = now;
+        inputEventsInWindow = 0;
+    }
+
+    /**
+     * 清空统计，不影响汇总
+     */
+    public void reset() {
+        frames = 0;
+        drawTimeNanos = 0;
+        maxDrawTimeNanos = 0;
+        drawCalls = 0;
+        lastFrameDrawCalls = 0;
+        invalidations = 0;
+        cursorBlinkFrames = 0;
+        measurePasses = 0;
+        inputEvents = 0;
+        inputWindowStart = 0;
+        inputEventsInWindow = 0;
+        inputEventsPerSecond = 0;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getDrawTimeNanos() {
+        return drawTimeNanos;
+    }
+
+    public long getAverageDrawTimeNanos() {
+        return frames == 0 ? 0 : drawTimeNanos / frames;
+    }
+
+    public long getMaxDrawTimeNanos() {
+        return maxDrawTimeNanos;
+    }
+
+    public long getDrawCalls() {
+        return drawCalls;
+    }
+
+    public int getLastFrameDrawCalls() {
+        return lastFrameDrawCalls;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public long getCursorBlinkFrames() {
+        return cursorBlinkFrames;
+    }
+
+    public long getMeasurePasses() {
+        return measurePasses;
+    }
+
+    public long getInputEvents() {
+        return inputEvents;
+    }
+
+    public int getInputEventsPerSecond() {
+        rollInputWindow(SystemClock.uptimeMillis());
+        return inputEventsPerSecond;
+    }
+}
@@ -0,0 +1,90 @@
+package com.qiqi.inputview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Picture;
+import android.os.Handler;
+
+/**
+ * InputView 某一时刻的不可变快照，可以在任意线程绘制为 Bitmap
+ * <p>
+ * 在主线程创建：复制已输入的内容、每一项的中心和光标位置，复制画笔，并把当前可见项的背景录制为 Picture。
+ * 之后绘制只读取这些副本，与控件本身再无关系，在调用方提供的线程上执行，结果通过主线程回调返回。
+ */
+final class InputViewSnapshot implements Runnable {
+    private final int width;
+    private final int height;
+    private final int scrollX;
+    private final Picture background;//可见项的背景
+    private final char[] text;//已输入的内容
+    private final float[] itemCenterX;
+    private final float textBaseline;
+    private final boolean cipherEnable;
+    private final Paint textPaint;
+    private final int cursorPosition;//需要绘制光标的项，不绘制时为 -1
+    private final float cursorStartY;
+    private final float cursorStopY;
+    private final Paint cursorPaint;
+    private final Bitmap reuseBitmap;//调用方提供的可以复用的 Bitmap
+    private final InputView.OnSnapshotListener listener;
+    private final Handler handler;//回调所在的主线程
+    private final char[] glyph = new char[1];
+
+    InputViewSnapshot(int width, int height, int scrollX, Picture background, char[] text, float[] itemCenterX,
+                      float textBaseline, boolean cipherEnable, Paint textPaint, int cursorPosition,
+                      float cursorStartY, float cursorStopY, Paint cursorPaint, Bitmap reuseBitmap,
+                      InputView.OnSnapshotListener listener, Handler handler) {
+        this.width = width;
+        this.height = height;
+        this.scrollX = scrollX;
+        this.background = background;
+        this.text = text;
+        this.itemCenterX = itemCenterX;
+        this.textBaseline = textBaseline;
+        this.cipherEnable = cipherEnable;
+        this.textPaint = textPaint;
+        this.cursorPosition = cursorPosition;
+        this.cursorStartY = cursorStartY;
+        this.cursorStopY = cursorStopY;
+        this.cursorPaint = cursorPaint;
+        this.reuseBitmap = reuseBitmap;
+        this.listener = listener;
+        this.handler = handler;
+    }
+
+    @Override
+    public void run() {
+        final Bitmap bitmap = obtainBitmap();
+        Canvas canvas = new Canvas(bitmap);
+        canvas.translate(-scrollX, 0);
+        //与 onDraw 相同的顺序：背景、光标、文字
+        canvas.drawPicture(background);
+        if (cursorPosition >= 0) {
+            canvas.drawLine(itemCenterX[cursorPosition], cursorStartY,
+                    itemCenterX[cursorPosition], cursorStopY, cursorPaint);
+        }
+        for (int i = 0; i < text.length; i++) {
+            InputView.drawItemText(canvas, textPaint, text[i], cipherEnable, itemCenterX[i], textBaseline, glyph);
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onSnapshot(bitmap);
+            }
+        });
+    }
+
+    /**
+     * 提供的 Bitmap 可修改且大小一致时清空后复用，否则创建新的
+     */
+    private Bitmap obtainBitmap() {
+        if (reuseBitmap != null && reuseBitmap.isMutable() && !reuseBitmap.isRecycled()
+                && reuseBitmap.getWidth() == width && reuseBitmap.getHeight() == height) {
+            reuseBitmap.eraseColor(Color.TRANSPARENT);
+            return reuseBitmap;
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+}
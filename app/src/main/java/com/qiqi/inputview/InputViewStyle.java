@@ -0,0 +1,487 @@
+package com.qiqi.inputview;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+
+import com.qiqi.inputview.core.CharFilter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * InputView 的样式
+ * <p>
+ * 不可变，可以被任意多个控件共用：尺寸、颜色都已解析为像素值，画笔也已配置好。
+ * 画笔只在包内访问，被所有共用该样式的控件读取，绘制时只能读取不能修改，需要修改时先复制（如截图）。
+ * 从 xml 构建时按 (配置, 主题, 属性) 缓存，RecyclerView 中反复创建的控件不会重复解析属性和创建画笔。
+ * 需要修改时通过 {@link #buildUpon()} 生成新的样式。只能在主线程使用。
+ */
+public final class InputViewStyle {
+    private static final int CACHE_SIZE = 32;
+    private static final Map<String, InputViewStyle> CACHE = new LinkedHashMap<String, InputViewStyle>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, InputViewStyle> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private static final WeakHashMap<Resources.Theme, Integer> THEME_IDS = new WeakHashMap<>();//主题的编号，主题回收后自动移除
+    private static final StringBuilder KEY_BUILDER = new StringBuilder();//复用的缓存键，只在主线程使用
+    private static int nextThemeId;
+
+    final int itemSize;//个数
+    final int itemPadding;//间隔
+    final int itemWidth;//宽度
+    final int itemHeight;//高度
+    final int border;//边框/下划线宽度
+    final int rectColor;//边框颜色
+    final int underLineColor;//下划线颜色
+    final int fillColor;//填充颜色
+    final int textSize;//文字大小
+    final int textColor;//文字颜色
+    final long cursorFlashTime;//光标闪动间隔时间
+    final boolean isCursorEnable;//是否开启光标
+    final boolean cipherEnable;//是否开启密文
+    final int cursorColor;//光标颜色
+    final int cursorWidth;//光标粗细
+    final boolean glyphAtlasEnable;//是否使用预先绘制的字形图集绘制文字
+    final boolean scrollEnable;//宽度不足时是否保持项宽度并横向滚动
+    final boolean animationEnable;//是否开启输入、删除和输入完毕的动画
+    final CharFilter filter;//允许输入的字符
+    final InputView.Mode mode;//样式模式
+    final Paint textPaint;//共用的文字画笔，不能修改
+    final Paint cursorPaint;//共用的光标画笔，不能修改
+
+    /**
+     * 获取 xml 属性对应的样式，相同配置、主题和属性的控件共用同一个对象
+     * 属性直接引用了主题属性（?attr/xxx）时不做缓存
+     */
+    public static InputViewStyle obtain(Context context, AttributeSet attrs) {
+        String key = cacheKey(context, attrs);
+        InputViewStyle style = key == null ? null : CACHE.get(key);
+        if (style == null) {
+            style = resolve(context, attrs);
+            if (key != null) {
+                CACHE.put(key, style);
+            }
+        }
+        return style;
+    }
+
+    /**
+     * 清空缓存，已创建的控件不受影响
+     */
+    static void clearCache() {
+        CACHE.clear();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String cacheKey(Context context, AttributeSet attrs) {
+        StringBuilder key = KEY_BUILDER;
+        key.setLength(0);
+        //只取影响尺寸、颜色和资源选择的配置，不包含每次配置变化都会增加的序号
+        Configuration config = context.getResources().getConfiguration();
+        key.append(config.densityDpi).append('|').append(config.fontScale)
+                .append('|').append(config.uiMode).append('|').append(config.locale)
+                .append('|').append(config.orientation).append('|').append(config.smallestScreenWidthDp)
+                .append('|').append(config.screenWidthDp).append('|').append(config.screenHeightDp);
+        //主题中的默认值和引用的 style 中的 ?attr 都依赖主题，不同主题不能共用样式
+        key.append('|').append(themeId(context.getTheme()));
+        if (attrs == null) {
+            return key.toString();
+        }
+        key.append('|').append(attrs.getStyleAttribute());
+        for (int i = 0; i < attrs.getAttributeCount(); i++) {
+            int name = attrs.getAttributeNameResource(i);
+            if (!isInputViewAttribute(name)) {
+                continue;
+            }
+            String value = attrs.getAttributeValue(i);
+            if (value != null && value.startsWith("?")) {
+                return null;
+            }
+            key.append('|').append(name).append('=').append(value);
+        }
+        return key.toString();
+    }
+
+    /**
+     * 为主题分配不会重复的编号，相同的主题（API 23 起按应用的 style 判断）编号相同
+     */
+    private static int themeId(Resources.Theme theme) {
+        Integer id = THEME_IDS.get(theme);
+        if (id == null) {
+            id = ++nextThemeId;
+            THEME_IDS.put(theme, id);
+        }
+        return id;
+    }
+
+    private static boolean isInputViewAttribute(int name) {
+        for (int attr : R.styleable.InputView) {
+            if (attr == name) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static InputViewStyle resolve(Context context, AttributeSet attrs) {
+        Builder builder = new Builder(context);
+        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.InputView);
+        builder.itemSize = typedArray.getInteger(R.styleable.InputView_itemSize, builder.itemSize);
+        builder.itemPadding = typedArray.getDimensionPixelSize(R.styleable.InputView_itemPadding, builder.itemPadding);
+        builder.itemWidth = typedArray.getDimensionPixelSize(R.styleable.InputView_itemWidth, builder.itemWidth);
+        builder.itemHeight = typedArray.getDimensionPixelSize(R.styleable.InputView_itemHeight, builder.itemHeight);
+        builder.border = typedArray.getDimensionPixelSize(R.styleable.InputView_border, builder.border);
+        builder.rectColor = typedArray.getColor(R.styleable.InputView_rectColor, builder.rectColor);
+        builder.underLineColor = typedArray.getColor(R.styleable.InputView_underLineColor, builder.underLineColor);
+        builder.fillColor = typedArray.getColor(R.styleable.InputView_fillColor, builder.fillColor);
+        builder.textSize = typedArray.getDimensionPixelSize(R.styleable.InputView_textSize, builder.textSize);
+        builder.textColor = typedArray.getColor(R.styleable.InputView_textColor, builder.textColor);
+        builder.cursorFlashTime = typedArray.getInteger(R.styleable.InputView_cursorFlashTime, (int) builder.cursorFlashTime);
+        builder.isCursorEnable = typedArray.getBoolean(R.styleable.InputView_isCursorEnable, builder.isCursorEnable);
+        builder.cipherEnable = typedArray.getBoolean(R.styleable.InputView_cipherEnable, builder.cipherEnable);
+        builder.cursorColor = typedArray.getColor(R.styleable.InputView_cursorColor, builder.cursorColor);
+        builder.glyphAtlasEnable = typedArray.getBoolean(R.styleable.InputView_glyphAtlasEnable, builder.glyphAtlasEnable);
+        builder.scrollEnable = typedArray.getBoolean(R.styleable.InputView_scrollEnable, builder.scrollEnable);
+        builder.animationEnable = typedArray.getBoolean(R.styleable.InputView_animationEnable, builder.animationEnable);
+        String inputChars = typedArray.getString(R.styleable.InputView_inputChars);
+        if (inputChars != null) {
+            builder.filter = CharFilter.of(inputChars, false);
+        } else {
+            builder.filter = filterOf(typedArray.getInteger(R.styleable.InputView_inputFilter, 0));
+        }
+        if (typedArray.hasValue(R.styleable.InputView_foldCase)) {
+            builder.filter = builder.filter.withFoldCase(typedArray.getBoolean(R.styleable.InputView_foldCase, false));
+        }
+        builder.mode = InputView.Mode.formMode(typedArray.getInteger(R.styleable.InputView_mode, builder.mode.getMode()));
+        typedArray.recycle();
+        return builder.build();
+    }
+
+    /**
+     * inputFilter 属性对应的过滤器
+     */
+    private static CharFilter filterOf(int inputFilter) {
+        switch (inputFilter) {
+            case 1:
+                return CharFilter.HEX;
+            case 2:
+                return CharFilter.ALPHANUMERIC;
+            case 3:
+                return CharFilter.UPPERCASE;
+            default:
+                return CharFilter.DIGITS;
+        }
+    }
+
+    private InputViewStyle(Builder builder) {
+        itemSize = builder.itemSize;
+        itemPadding = builder.itemPadding;
+        itemWidth = builder.itemWidth;
+        itemHeight = builder.itemHeight;
+        border = builder.border;
+        rectColor = builder.rectColor;
+        underLineColor = builder.underLineColor;
+        fillColor = builder.fillColor;
+        textSize = builder.textSize;
+        textColor = builder.textColor;
+        cursorFlashTime = builder.cursorFlashTime;
+        isCursorEnable = builder.isCursorEnable;
+        cipherEnable = builder.cipherEnable;
+        cursorColor = builder.cursorColor;
+        cursorWidth = builder.cursorWidth;
+        glyphAtlasEnable = builder.glyphAtlasEnable;
+        scrollEnable = builder.scrollEnable;
+        animationEnable = builder.animationEnable;
+        filter = builder.filter;
+        mode = builder.mode;
+        textPaint = new Paint();
+        textPaint.setAntiAlias(true);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setStyle(Paint.Style.FILL);
+        textPaint.setColor(textColor);
+        textPaint.setTextSize(textSize);
+        cursorPaint = new Paint();
+        cursorPaint.setAntiAlias(true);
+        cursorPaint.setStyle(Paint.Style.FILL);
+        cursorPaint.setColor(cursorColor);
+        cursorPaint.setStrokeWidth(cursorWidth);
+    }
+
+    /**
+     * 以当前样式为基础创建新样式
+     */
+    public Builder buildUpon() {
+        return new Builder(this);
+    }
+
+    public int getItemSize() {
+        return itemSize;
+    }
+
+    public int getItemPadding() {
+        return itemPadding;
+    }
+
+    public int getItemWidth() {
+        return itemWidth;
+    }
+
+    public int getItemHeight() {
+        return itemHeight;
+    }
+
+    public int getBorder() {
+        return border;
+    }
+
+    public int getRectColor() {
+        return rectColor;
+    }
+
+    public int getUnderLineColor() {
+        return underLineColor;
+    }
+
+    public int getFillColor() {
+        return fillColor;
+    }
+
+    public int getTextSize() {
+        return textSize;
+    }
+
+    public int getTextColor() {
+        return textColor;
+    }
+
+    public long getCursorFlashTime() {
+        return cursorFlashTime;
+    }
+
+    public boolean isCursorEnable() {
+        return isCursorEnable;
+    }
+
+    public boolean isCipherEnable() {
+        return cipherEnable;
+    }
+
+    public int getCursorColor() {
+        return cursorColor;
+    }
+
+    public boolean isGlyphAtlasEnable() {
+        return glyphAtlasEnable;
+    }
+
+    public boolean isScrollEnable() {
+        return scrollEnable;
+    }
+
+    public boolean isAnimationEnable() {
+        return animationEnable;
+    }
+
+    public CharFilter getFilter() {
+        return filter;
+    }
+
+    public InputView.Mode getMode() {
+        return mode;
+    }
+
+    public static final class Builder {
+        private int itemSize;
+        private int itemPadding;
+        private int itemWidth;
+        private int itemHeight;
+        private int border;
+        private int rectColor;
+        private int underLineColor;
+        private int fillColor;
+        private int textSize;
+        private int textColor;
+        private long cursorFlashTime;
+        private boolean isCursorEnable;
+        private boolean cipherEnable;
+        private int cursorColor;
+        private int cursorWidth;
+        private boolean glyphAtlasEnable;
+        private boolean scrollEnable;
+        private boolean animationEnable;
+        private CharFilter filter;
+        private InputView.Mode mode;
+
+        /**
+         * 使用默认样式
+         */
+        public Builder(Context context) {
+            DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+            itemSize = 4;
+            itemPadding = dp2px(metrics, 15);
+            itemWidth = dp2px(metrics, 40);
+            itemHeight = dp2px(metrics, 40);
+            border = dp2px(metrics, 2);
+            rectColor = Color.BLACK;
+            underLineColor = Color.BLACK;
+            fillColor = Color.GRAY;
+            textSize = (int) (16 * metrics.scaledDensity + 0.5f);
+            textColor = Color.RED;
+            cursorFlashTime = 500;
+            isCursorEnable = true;
+            cipherEnable = true;
+            cursorColor = Color.GRAY;
+            cursorWidth = dp2px(metrics, 2);
+            glyphAtlasEnable = false;
+            scrollEnable = false;
+            animationEnable = false;
+            filter = CharFilter.DIGITS;
+            mode = InputView.Mode.UNDERLINE;
+        }
+
+        private Builder(InputViewStyle style) {
+            itemSize = style.itemSize;
+            itemPadding = style.itemPadding;
+            itemWidth = style.itemWidth;
+            itemHeight = style.itemHeight;
+            border = style.border;
+            rectColor = style.rectColor;
+            underLineColor = style.underLineColor;
+            fillColor = style.fillColor;
+            textSize = style.textSize;
+            textColor = style.textColor;
+            cursorFlashTime = style.cursorFlashTime;
+            isCursorEnable = style.isCursorEnable;
+            cipherEnable = style.cipherEnable;
+            cursorColor = style.cursorColor;
+            cursorWidth = style.cursorWidth;
+            glyphAtlasEnable = style.glyphAtlasEnable;
+            scrollEnable = style.scrollEnable;
+            animationEnable = style.animationEnable;
+            filter = style.filter;
+            mode = style.mode;
+        }
+
+        private static int dp2px(DisplayMetrics metrics, float dp) {
+            return (int) (dp * metrics.density + 0.5f);
+        }
+
+        public Builder setItemSize(int itemSize) {
+            this.itemSize = itemSize;
+            return this;
+        }
+
+        public Builder setItemPadding(int itemPadding) {
+            this.itemPadding = itemPadding;
+            return this;
+        }
+
+        public Builder setItemWidth(int itemWidth) {
+            this.itemWidth = itemWidth;
+            return this;
+        }
+
+        public Builder setItemHeight(int itemHeight) {
+            this.itemHeight = itemHeight;
+            return this;
+        }
+
+        public Builder setBorder(int border) {
+            this.border = border;
+            return this;
+        }
+
+        public Builder setRectColor(int rectColor) {
+            this.rectColor = rectColor;
+            return this;
+        }
+
+        public Builder setUnderLineColor(int underLineColor) {
+            this.underLineColor = underLineColor;
+            return this;
+        }
+
+        public Builder setFillColor(int fillColor) {
+            this.fillColor = fillColor;
+            return this;
+        }
+
+        public Builder setTextSize(int textSize) {
+            this.textSize = textSize;
+            return this;
+        }
+
+        public Builder setTextColor(int textColor) {
+            this.textColor = textColor;
+            return this;
+        }
+
+        public Builder setCursorFlashTime(long cursorFlashTime) {
+            this.cursorFlashTime = cursorFlashTime;
+            return this;
+        }
+
+        public Builder setCursorEnable(boolean cursorEnable) {
+            isCursorEnable = cursorEnable;
+            return this;
+        }
+
+        public Builder setCipherEnable(boolean cipherEnable) {
+            this.cipherEnable = cipherEnable;
+            return this;
+        }
+
+        public Builder setCursorColor(int cursorColor) {
+            this.cursorColor = cursorColor;
+            return this;
+        }
+
+        public Builder setGlyphAtlasEnable(boolean glyphAtlasEnable) {
+            this.glyphAtlasEnable = glyphAtlasEnable;
+            return this;
+        }
+
+        public Builder setScrollEnable(boolean scrollEnable) {
+            this.scrollEnable = scrollEnable;
+            return this;
+        }
+
+        public Builder setAnimationEnable(boolean animationEnable) {
+            this.animationEnable = animationEnable;
+            return this;
+        }
+
+        public Builder setFilter(CharFilter filter) {
+            if (filter == null) {
+                throw new NullPointerException("filter == null");
+            }
+            this.filter = filter;
+            return this;
+        }
+
+        public Builder setMode(InputView.Mode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException 项数小于 0
+         */
+        public InputViewStyle build() {
+            //在生成样式前检查，控件不会应用到一半才失败
+            if (itemSize < 0) {
+                throw new IllegalArgumentException("itemSize < 0: " + itemSize);
+            }
+            return new InputViewStyle(this);
+        }
+    }
+}
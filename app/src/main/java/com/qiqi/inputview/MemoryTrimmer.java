@@ -0,0 +1,63 @@
+package com.qiqi.inputview;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import java.util.ArrayList;
+
+/**
+ * 内存不足时释放缓存
+ * <p>
+ * 进程内只向 Application 注册一次，记录已添加到窗口的 InputView。
+ * 系统回调 onTrimMemory/onLowMemory 时，让这些控件丢弃背景录制和字形图集，
+ * 并清空共享的图集缓存和样式缓存，之后绘制时再按需重建。已离开窗口的控件在离开时就已释放。只能在主线程调用。
+ */
+final class MemoryTrimmer implements ComponentCallbacks2 {
+    private static MemoryTrimmer instance;
+
+    private final ArrayList<InputView> views = new ArrayList<>();
+
+    private MemoryTrimmer() {
+    }
+
+    static MemoryTrimmer getInstance(Context context) {
+        if (instance == null) {
+            instance = new MemoryTrimmer();
+            context.getApplicationContext().registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    void register(InputView view) {
+        if (!views.contains(view)) {
+            views.add(view);
+        }
+    }
+
+    void unregister(InputView view) {
+        views.remove(view);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        //内存开始紧张、界面不可见或进程进入后台时释放
+        if (level < TRIM_MEMORY_RUNNING_LOW) {
+            return;
+        }
+        for (int i = views.size() - 1; i >= 0; i--) {
+            views.get(i).releaseCaches();
+        }
+        GlyphAtlas.clear();
+        InputViewStyle.clearCache();
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.qiqi.inputview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+
+/**
+ * 把所有项的矩形合并到一个 Path 中，通过一次 drawPath 绘制
+ */
+abstract class PathCellRenderer implements CellRenderer {
+    final Paint paint = new Paint();
+    private final Path path = new Path();//所有项
+    private final Path rangePath = new Path();//只绘制部分项时使用
+    private final Rect rect = new Rect();
+    private float[] rects = new float[0];//每一项 4 个值：left, top, right, bottom
+
+    /**
+     * 配置画笔
+     *
+     * @return 每一项的矩形需要向内收缩的距离
+     */
+    abstract int configure(InputView view);
+
+    @Override
+    public void prepare(InputView view) {
+        int inset = configure(view);
+        int itemSize = view.getItemSize();
+        if (rects.length != itemSize * 4) {
+            rects = new float[itemSize * 4];
+        }
+        for (int i = 0; i < itemSize; i++) {
+            view.getItemRect(i, rect);
+            rect.inset(inset, inset);
+            rects[i * 4] = rect.left;
+            rects[i * 4 + 1] = rect.top;
+            rects[i * 4 + 2] = rect.right;
+            rects[i * 4 + 3] = rect.bottom;
+        }
+        buildPath(path, 0, itemSize - 1);
+    }
+
+    @Override
+    public int draw(Canvas canvas, int from, int to) {
+        if (from > to) {
+            return 0;
+        }
+        if (from == 0 && to == rects.length / 4 - 1) {
+            canvas.drawPath(path, paint);
+        } else {
+            buildPath(rangePath, from, to);
+            canvas.drawPath(rangePath, paint);
+        }
+        return 1;
+    }
+
+    private void buildPath(Path path, int from, int to) {
+        path.rewind();
+        for (int i = from; i <= to; i++) {
+            path.addRect(rects[i * 4], rects[i * 4 + 1], rects[i * 4 + 2], rects[i * 4 + 3], Path.Direction.CW);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.qiqi.inputview;
+
+import android.graphics.Paint;
+
+/**
+ * 边框样式
+ */
+class RectRenderer extends PathCellRenderer {
+
+    @Override
+    int configure(InputView view) {
+        paint.setColor(view.getRectColor());
+        paint.setStrokeWidth(view.getBorder());
+        paint.setStyle(Paint.Style.STROKE);
+        //边框画在项内，向内收缩半个边框宽度
+        return view.getBorder() / 2;
+    }
+}
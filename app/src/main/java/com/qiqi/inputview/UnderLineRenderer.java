@@ -0,0 +1,43 @@
+package com.qiqi.inputview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * 下划线样式，所有下划线通过一次 drawLines 绘制
+ */
+class UnderLineRenderer implements CellRenderer {
+    private final Paint paint = new Paint();
+    private final Rect rect = new Rect();
+    private float[] lines = new float[0];//每一项 4 个值：起点x, 起点y, 终点x, 终点y
+
+    @Override
+    public void prepare(InputView view) {
+        paint.setColor(view.getUnderLineColor());
+        paint.setStrokeWidth(view.getBorder());
+        paint.setStyle(Paint.Style.FILL);
+        int itemSize = view.getItemSize();
+        if (lines.length != itemSize * 4) {
+            lines = new float[itemSize * 4];
+        }
+        for (int i = 0; i < itemSize; i++) {
+            view.getItemRect(i, rect);
+            // 起止点x为该项的左右边界, y为底部向上半个下划线宽度
+            float y = rect.bottom - view.getBorder() / 2;
+            lines[i * 4] = rect.left;
+            lines[i * 4 + 1] = y;
+            lines[i * 4 + 2] = rect.right;
+            lines[i * 4 + 3] = y;
+        }
+    }
+
+    @Override
+    public int draw(Canvas canvas, int from, int to) {
+        if (from > to) {
+            return 0;
+        }
+        canvas.drawLines(lines, from * 4, (to - from + 1) * 4, paint);
+        return 1;
+    }
+}
@@ -0,0 +1,107 @@
+package com.qiqi.inputview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Picture;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * 只统计绘制调用次数的 Canvas，不做实际绘制
+ */
+class CountingCanvas extends Canvas {
+    private final int width;
+    private final int height;
+    private int drawCalls;
+
+    CountingCanvas(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    int getDrawCalls() {
+        return drawCalls;
+    }
+
+    void resetDrawCalls() {
+        drawCalls = 0;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public boolean isHardwareAccelerated() {
+        return false;
+    }
+
+    @Override
+    public boolean getClipBounds(Rect bounds) {
+        bounds.set(0, 0, width, height);
+        return true;
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        drawCalls++;
+    }
+
+    @Override
+    public void drawLines(float[] pts, int offset, int count, Paint paint) {
+        drawCalls++;
+    }
+
+    @Override
+    public void drawLines(float[] pts, Paint paint) {
+        drawCalls++;
+    }
+
+    @Override
+    public void drawRect(Rect r, Paint paint) {
+        drawCalls++;
+    }
+
+    @Override
+    public void drawRect(RectF rect, Paint paint) {
+        drawCalls++;
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+        drawCalls++;
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+        drawCalls++;
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, Paint paint) {
+        drawCalls++;
+    }
+
+    @Override
+    public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+        drawCalls++;
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+        drawCalls++;
+    }
+
+    @Override
+    public void drawPicture(Picture picture) {
+        drawCalls++;
+    }
+}
@@ -0,0 +1,279 @@
+package com.qiqi.inputview;
+
+import android.util.AttributeSet;
+import android.view.KeyEvent;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 绘制与输入热点路径的基准测试，在普通 JVM 上运行：
+ * ./gradlew benchmark
+ * <p>
+ * 输出每帧/每次操作的耗时、分配字节数和绘制调用次数，指定 benchmark.results 时同时追加到该 CSV 文件。
+ * 耗时与机器有关不做断言；onDraw 不能分配内存，每帧的绘制调用次数不能超过预算，开启滚动时与项数无关。
+ * 普通的单元测试不会运行
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class InputViewBenchmark {
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 5000;
+    private static final int[] ITEM_SIZES = {4, 6, 12};
+    private static final int[] SCROLL_ITEM_SIZES = {16, 32, 64};
+    private static final int SCROLL_WIDTH = 480;
+    private static final String RESULTS_PROPERTY = "benchmark.results";//CSV 结果文件路径的系统属性
+
+    @Test
+    public void onDraw() {
+        for (InputView.Mode mode : InputView.Mode.values()) {
+            for (int itemSize : ITEM_SIZES) {
+                InputView inputView = createView(itemSize);
+                inputView.setMode(mode);
+                //输入一半，光标、文字和空项都会绘制
+                for (int i = 0; i < itemSize / 2; i++) {
+                    inputView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_1 + i % 9));
+                }
+                assertEquals(itemSize / 2, inputView.getText().length());
+                CountingCanvas canvas = new CountingCanvas(inputView.getWidth(), inputView.getHeight());
+                for (int i = 0; i < WARMUP; i++) {
+                    inputView.onDraw(canvas);
+                }
+                canvas.resetDrawCalls();
+
+                long bytes = allocatedBytes();
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    inputView.onDraw(canvas);
+                }
+                long time = System.nanoTime() - start;
+                bytes = allocatedBytes() - bytes;
+                String name = "onDraw " + mode + " itemSize=" + itemSize;
+                report(name, time, bytes, canvas.getDrawCalls());
+                assertEquals(name + " B/op", 0, bytes / ITERATIONS);
+                //背景一次、光标一次、每个已输入的字符一次
+                int drawCallBudget = itemSize / 2 + 2;
+                assertTrue(name + " draw calls/frame", canvas.getDrawCalls() / ITERATIONS <= drawCallBudget);
+            }
+        }
+    }
+
+    /**
+     * 开启滚动后固定宽度，每帧的耗时和绘制调用次数应与项数无关
+     */
+    @Test
+    public void onDrawScrolling() {
+        int firstDrawCalls = -1;
+        for (int itemSize : SCROLL_ITEM_SIZES) {
+            AttributeSet attrs = Robolectric.buildAttributeSet()
+                    .addAttribute(R.attr.itemSize, String.valueOf(itemSize))
+                    .addAttribute(R.attr.scrollEnable, "true")
+                    .build();
+            InputView inputView = new InputView(RuntimeEnvironment.application, attrs);
+            int width = View.MeasureSpec.makeMeasureSpec(SCROLL_WIDTH, View.MeasureSpec.EXACTLY);
+            int unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+            inputView.measure(width, unspecified);
+            inputView.layout(0, 0, inputView.getMeasuredWidth(), inputView.getMeasuredHeight());
+            CountingCanvas canvas = new CountingCanvas(inputView.getWidth(), inputView.getHeight());
+            for (int i = 0; i < WARMUP; i++) {
+                inputView.onDraw(canvas);
+            }
+            canvas.resetDrawCalls();
+
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                inputView.onDraw(canvas);
+            }
+            long time = System.nanoTime() - start;
+            bytes = allocatedBytes() - bytes;
+            String name = "onDraw scroll itemSize=" + itemSize;
+            report(name, time, bytes, canvas.getDrawCalls());
+            assertEquals(name + " B/op", 0, bytes / ITERATIONS);
+            int drawCalls = canvas.getDrawCalls() / ITERATIONS;
+            if (firstDrawCalls < 0) {
+                firstDrawCalls = drawCalls;
+            }
+            assertEquals(name + " draw calls/frame", firstDrawCalls, drawCalls);
+        }
+    }
+
+    @Test
+    public void addAndDelete() {
+        for (int itemSize : ITEM_SIZES) {
+            InputView inputView = createView(itemSize);
+            KeyEvent add = new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_5);
+            KeyEvent delete = new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_DEL);
+            //按键没有转换为字符时只是在测量空操作
+            inputView.dispatchKeyEvent(add);
+            assertEquals(1, inputView.getText().length());
+            inputView.clear();
+            for (int i = 0; i < WARMUP; i++) {
+                fillAndClear(inputView, itemSize, add, delete);
+            }
+
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                fillAndClear(inputView, itemSize, add, delete);
+            }
+            long time = System.nanoTime() - start;
+            bytes = allocatedBytes() - bytes;
+            report("add+delete itemSize=" + itemSize, time / itemSize, bytes / itemSize, -1);
+        }
+    }
+
+    /**
+     * 扫码枪等一次发送多个字符的 ACTION_MULTIPLE 事件，按项数一次填满再清空
+     */
+    @Test
+    public void multipleCharacters() {
+        for (int itemSize : ITEM_SIZES) {
+            InputView inputView = createView(itemSize);
+            StringBuilder characters = new StringBuilder();
+            for (int i = 0; i < itemSize; i++) {
+                characters.append((char) ('0' + i % 10));
+            }
+            KeyEvent multiple = new KeyEvent(0, characters.toString(), 0, 0);
+            inputView.dispatchKeyEvent(multiple);
+            assertEquals(itemSize, inputView.getText().length());
+            inputView.clear();
+            for (int i = 0; i < WARMUP; i++) {
+                inputView.dispatchKeyEvent(multiple);
+                inputView.clear();
+            }
+
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                inputView.dispatchKeyEvent(multiple);
+                inputView.clear();
+            }
+            long time = System.nanoTime() - start;
+            bytes = allocatedBytes() - bytes;
+            report("ACTION_MULTIPLE+clear itemSize=" + itemSize, time, bytes, -1);
+        }
+    }
+
+    @Test
+    public void getText() {
+        for (int itemSize : ITEM_SIZES) {
+            InputView inputView = createView(itemSize);
+            for (int i = 0; i < itemSize; i++) {
+                inputView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_7));
+            }
+            assertEquals(itemSize, inputView.getText().length());
+            char[] dest = new char[itemSize];
+            int sink = 0;
+            for (int i = 0; i < WARMUP; i++) {
+                sink += inputView.getText().length() + inputView.getText(dest);
+            }
+
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += inputView.getText().length();
+            }
+            long time = System.nanoTime() - start;
+            bytes = allocatedBytes() - bytes;
+            report("getText() itemSize=" + itemSize, time, bytes, -1);
+
+            bytes = allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += inputView.getText(dest);
+            }
+            time = System.nanoTime() - start;
+            bytes = allocatedBytes() - bytes;
+            report("getText(char[]) itemSize=" + itemSize, time, bytes, -1);
+            if (sink == 0) {
+                throw new AssertionError();
+            }
+        }
+    }
+
+    private static void fillAndClear(InputView inputView, int itemSize, KeyEvent add, KeyEvent delete) {
+        for (int j = 0; j < itemSize; j++) {
+            inputView.dispatchKeyEvent(add);
+        }
+        for (int j = 0; j < itemSize; j++) {
+            inputView.dispatchKeyEvent(delete);
+        }
+    }
+
+    private static InputView createView(int itemSize) {
+        AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.itemSize, String.valueOf(itemSize))
+                .build();
+        InputView inputView = new InputView(RuntimeEnvironment.application, attrs);
+        int unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        inputView.measure(unspecified, unspecified);
+        inputView.layout(0, 0, inputView.getMeasuredWidth(), inputView.getMeasuredHeight());
+        return inputView;
+    }
+
+    /**
+     * 当前线程已分配的字节数，JVM 不支持时返回 0
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    /**
+     * @param drawCalls 总绘制调用次数，小于 0 时不输出
+     */
+    private static void report(String name, long nanos, long bytes, int drawCalls) {
+        StringBuilder sb = new StringBuilder("[benchmark] ").append(name)
+                .append(": ").append(nanos / ITERATIONS).append(" ns/op, ")
+                .append(bytes / ITERATIONS).append(" B/op");
+        if (drawCalls >= 0) {
+            sb.append(", ").append(drawCalls / ITERATIONS).append(" draw calls/frame");
+        }
+        System.out.println(sb);
+        writeResult(name, nanos / ITERATIONS, bytes / ITERATIONS, drawCalls < 0 ? -1 : drawCalls / ITERATIONS);
+    }
+
+    /**
+     * 指定了结果文件时追加一行：名称,ns/op,B/op,每帧绘制调用次数（不统计时为 -1）
+     */
+    private static void writeResult(String name, long nanosPerOp, long bytesPerOp, int drawCallsPerFrame) {
+        String path = System.getProperty(RESULTS_PROPERTY);
+        if (path == null) {
+            return;
+        }
+        File file = new File(path);
+        boolean isNew = !file.exists();
+        File parent = file.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8")) {
+            if (isNew) {
+                writer.write("name,ns_per_op,bytes_per_op,draw_calls_per_frame\n");
+            }
+            writer.write(name + ',' + nanosPerOp + ',' + bytesPerOp + ',' + drawCallsPerFrame + '\n');
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
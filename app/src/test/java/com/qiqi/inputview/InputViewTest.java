@@ -0,0 +1,498 @@
+package com.qiqi.inputview;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.text.InputType;
+import android.util.AttributeSet;
+import android.view.ContextThemeWrapper;
+import android.view.KeyEvent;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+import android.view.inputmethod.EditorInfo;
+import android.view.inputmethod.InputConnection;
+import android.widget.FrameLayout;
+
+import com.qiqi.inputview.core.CharFilter;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 刷新次数、回调时机和输入顺序的测试
+ * <p>
+ * 控件添加到 Activity 并获得焦点后暂停主线程，下一帧的任务只在 {@link #nextFrame()} 时执行
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class InputViewTest {
+    private static final long FRAME_MILLIS = 16;
+
+    @After
+    public void tearDown() {
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    @Test
+    public void setText_completeView_invalidatesAndNotifiesOnce() {
+        InputView inputView = attachView(4);
+        inputView.setText("1234");
+        nextFrame();
+        assertTrue(inputView.hasFocus());
+        assertTrue(inputView.isInputComplete());
+        Listener listener = listen(inputView);
+        inputView.setMetricsEnabled(true);
+
+        //由输入完毕变为未完毕，光标重新开始闪动，也只刷新一次
+        inputView.setText("12");
+        assertEquals(1, inputView.getMetrics().getInvalidations());
+        assertEquals(0, listener.textChanged);
+        nextFrame();
+        assertEquals(1, listener.textChanged);
+        assertEquals("12", listener.text);
+        assertEquals(0, listener.inputComplete);
+    }
+
+    @Test
+    public void keyBurst_appliesAndNotifiesOnceOnNextFrame() {
+        InputView inputView = attachView(6);
+        Listener listener = listen(inputView);
+        inputView.setMetricsEnabled(true);
+
+        for (int i = 0; i < 3; i++) {
+            inputView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_1 + i));
+        }
+        //按键只入队，到下一帧才应用
+        assertEquals(0, inputView.getMetrics().getInvalidations());
+        assertEquals(0, listener.textChanged);
+        nextFrame();
+        assertEquals(1, inputView.getMetrics().getInvalidations());
+        assertEquals(1, inputView.getMetrics().getInputEvents());
+        assertEquals(1, listener.textChanged);
+        assertEquals("123", listener.text);
+    }
+
+    @Test
+    public void batchEdit_notifiesOnceOnNextFrame() {
+        InputView inputView = attachView(6);
+        Listener listener = listen(inputView);
+        inputView.setMetricsEnabled(true);
+        InputConnection connection = inputView.onCreateInputConnection(new EditorInfo());
+
+        connection.beginBatchEdit();
+        connection.commitText("12", 1);
+        connection.deleteSurroundingText(1, 0);
+        connection.commitText("34567", 1);
+        assertEquals(0, inputView.getMetrics().getInvalidations());
+        assertEquals(0, inputView.getMetrics().getInputEvents());
+        connection.endBatchEdit();
+        assertEquals(1, inputView.getMetrics().getInvalidations());
+        assertEquals(1, inputView.getMetrics().getInputEvents());
+        assertEquals(0, listener.textChanged);
+        nextFrame();
+        assertEquals(1, listener.textChanged);
+        assertEquals(1, listener.inputComplete);
+        assertEquals("134567", listener.text);
+    }
+
+    @Test
+    public void queuedKeys_applyBeforeCommitText() {
+        InputView inputView = attachView(6);
+        inputView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_1));
+        inputView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_2));
+        assertEquals(2, inputView.getPendingKeyCount());
+        InputConnection connection = inputView.onCreateInputConnection(new EditorInfo());
+        connection.commitText("34", 1);
+        assertEquals(0, inputView.getPendingKeyCount());
+        assertEquals("1234", inputView.getText());
+    }
+
+    @Test
+    public void queuedKeys_applyBeforeGetText() {
+        InputView inputView = attachView(6);
+        inputView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_1));
+        inputView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_2));
+        inputView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_DEL));
+        inputView.dispatchKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_3));
+        //还没到下一帧，读取时按顺序应用
+        assertEquals("13", inputView.getText());
+        assertEquals(0, inputView.getPendingKeyCount());
+    }
+
+    @Test
+    public void actionMultiple_clampsRepeatCount() {
+        InputView inputView = attachView(4);
+        inputView.dispatchKeyEvent(new KeyEvent(0, 0, KeyEvent.ACTION_MULTIPLE, KeyEvent.KEYCODE_5, 1000));
+        //超出项数的重复没有效果，不进入队列
+        assertEquals(4, inputView.getPendingKeyCount());
+        assertEquals("5555", inputView.getText());
+
+        inputView.dispatchKeyEvent(new KeyEvent(0, 0, KeyEvent.ACTION_MULTIPLE, KeyEvent.KEYCODE_DEL, 1000));
+        assertEquals(4, inputView.getPendingKeyCount());
+        assertEquals("", inputView.getText());
+    }
+
+    @Test
+    public void postText_fromBackgroundThread_lastWriterWins() throws InterruptedException {
+        final InputView inputView = attachView(4);
+        Listener listener = listen(inputView);
+        inputView.setMetricsEnabled(true);
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                inputView.postText("1111");
+                inputView.postText("2222");
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals("", inputView.getText());
+        nextFrame();
+        //只应用最后一次的内容，只调用一次 setText
+        assertEquals("2222", inputView.getText());
+        assertEquals(1, inputView.getMetrics().getInvalidations());
+        assertEquals(1, listener.textChanged);
+        assertEquals("2222", listener.text);
+    }
+
+    @Test
+    public void setTextAndAppend_ignoreNull() {
+        InputView inputView = attachView(4);
+        inputView.setText("12");
+        inputView.append(null);
+        assertEquals("12", inputView.getText());
+        inputView.setText(null);
+        assertEquals("", inputView.getText());
+    }
+
+    @Test
+    public void edit_negativeItemSize_leavesViewUnchanged() {
+        InputView inputView = attachView(4);
+        try {
+            inputView.edit().setItemSize(-1).apply();
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(4, inputView.getItemSize());
+        assertEquals(4, inputView.getStyle().getItemSize());
+        //之后的修改仍然正常刷新
+        inputView.setMetricsEnabled(true);
+        inputView.setText("12");
+        assertEquals(1, inputView.getMetrics().getInvalidations());
+    }
+
+    @Test
+    public void restoreState_smallerItemSize_truncates() {
+        InputView source = attachView(6);
+        source.setText("123456");
+        Parcelable state = parcel(source.onSaveInstanceState());
+
+        InputView target = attachView(4);
+        Listener listener = listen(target);
+        target.onRestoreInstanceState(state);
+        assertEquals("1234", target.getText());
+        assertTrue(target.isInputComplete());
+        //截断后的内容同样通知监听
+        nextFrame();
+        assertEquals(1, listener.textChanged);
+        assertEquals("1234", listener.text);
+        assertEquals(1, listener.inputComplete);
+    }
+
+    @Test
+    public void restoreState_differentFilter_skipsRejectedChars() {
+        InputView source = attachView(6);
+        source.setFilter(CharFilter.HEX);
+        source.setText("1a2b3c");
+        Parcelable state = parcel(source.onSaveInstanceState());
+
+        //默认只允许数字
+        InputView target = attachView(6);
+        Listener listener = listen(target);
+        target.onRestoreInstanceState(state);
+        assertEquals("123", target.getText());
+        nextFrame();
+        assertEquals(1, listener.textChanged);
+        assertEquals("123", listener.text);
+        assertEquals(0, listener.inputComplete);
+    }
+
+    @Test
+    public void accessibility_exposesItemsAndNotifiesChangedItemsOnly() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        AccessibilityManager accessibilityManager =
+                (AccessibilityManager) activity.getSystemService(Context.ACCESSIBILITY_SERVICE);
+        Shadows.shadowOf(accessibilityManager).setEnabled(true);
+        InputView inputView = new InputView(activity, itemSizeAttrs(12));
+        EventRecorder parent = new EventRecorder(activity);
+        parent.addView(inputView);
+        activity.setContentView(parent);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        ShadowLooper.pauseMainLooper();
+
+        //每一项一个虚拟节点
+        AccessibilityNodeProvider provider = inputView.getAccessibilityNodeProvider();
+        assertEquals(12, provider.createAccessibilityNodeInfo(View.NO_ID).getChildCount());
+        AccessibilityNodeInfo item = provider.createAccessibilityNodeInfo(0);
+        assertEquals(inputView.getItemDescription(0), item.getContentDescription());
+        assertNull(provider.createAccessibilityNodeInfo(12));
+
+        inputView.append("12");
+        nextFrame();
+        inputView.append("3");
+        parent.events.clear();
+        nextFrame();
+        //只通知新输入的项和新的光标所在的项，与项数无关
+        assertEquals(2, parent.countEvents(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED));
+    }
+
+    @Test
+    public void snapshot_drawsOffMainThreadAndCallsBackOnMainThread() {
+        InputView inputView = attachView(4);
+        inputView.setText("12");
+        final Thread mainThread = Thread.currentThread();
+        final List<Thread> drawThreads = new ArrayList<>();
+        //在另一个线程绘制，等待绘制完成后返回
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                Thread thread = new Thread(command);
+                drawThreads.add(thread);
+                thread.start();
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        };
+        final List<Bitmap> bitmaps = new ArrayList<>();
+        final List<Thread> callbackThreads = new ArrayList<>();
+        InputView.OnSnapshotListener listener = new InputView.OnSnapshotListener() {
+            @Override
+            public void onSnapshot(Bitmap bitmap) {
+                bitmaps.add(bitmap);
+                callbackThreads.add(Thread.currentThread());
+            }
+        };
+
+        inputView.snapshot(executor, null, listener);
+        assertEquals(1, drawThreads.size());
+        assertNotSame(mainThread, drawThreads.get(0));
+        //回调发送到主线程，主线程执行前不会调用
+        assertTrue(bitmaps.isEmpty());
+        nextFrame();
+        assertEquals(1, bitmaps.size());
+        assertSame(mainThread, callbackThreads.get(0));
+        Bitmap bitmap = bitmaps.get(0);
+        assertEquals(inputView.getWidth(), bitmap.getWidth());
+        assertEquals(inputView.getHeight(), bitmap.getHeight());
+
+        //大小一致且可修改时复用
+        inputView.snapshot(executor, bitmap, listener);
+        nextFrame();
+        assertSame(bitmap, bitmaps.get(1));
+    }
+
+    @Test
+    public void trimMemory_releasesCachesAndRebuildsOnDraw() {
+        InputView inputView = attachView(4);
+        CountingCanvas canvas = new CountingCanvas(inputView.getWidth(), inputView.getHeight());
+        inputView.onDraw(canvas);
+        assertTrue(inputView.isFrameCached());
+        Context context = inputView.getContext();
+        InputViewStyle style = InputViewStyle.obtain(context, itemSizeAttrs(4));
+        MemoryTrimmer trimmer = MemoryTrimmer.getInstance(context);
+
+        //内存还不紧张时保留
+        trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertTrue(inputView.isFrameCached());
+        assertSame(style, InputViewStyle.obtain(context, itemSizeAttrs(4)));
+
+        trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertFalse(inputView.isFrameCached());
+        assertNotSame(style, InputViewStyle.obtain(context, itemSizeAttrs(4)));
+
+        //下一次绘制时重新录制
+        inputView.onDraw(canvas);
+        assertTrue(inputView.isFrameCached());
+    }
+
+    @Test
+    public void completeAnimation_keepsEnterOfLastItem() {
+        CellAnimator animator = new CellAnimator(attachView(4));
+        animator.setItemSize(4);
+        animator.startEnter(3);
+        animator.startComplete();
+        assertEquals(CellAnimator.ENTER, animator.getType(3));
+        assertEquals(CellAnimator.COMPLETE, animator.getType(0));
+    }
+
+    @Test
+    public void inputType_followsFilter() {
+        InputView inputView = attachView(4);
+        int text = InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_VISIBLE_PASSWORD
+                | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS;
+        int upperCase = text | InputType.TYPE_TEXT_FLAG_CAP_CHARACTERS;
+        assertEquals(InputType.TYPE_CLASS_NUMBER, inputTypeOf(inputView, CharFilter.DIGITS));
+        assertEquals(text, inputTypeOf(inputView, CharFilter.HEX));
+        assertEquals(upperCase, inputTypeOf(inputView, CharFilter.HEX.withFoldCase(true)));
+        assertEquals(text, inputTypeOf(inputView, CharFilter.ALPHANUMERIC));
+        assertEquals(upperCase, inputTypeOf(inputView, CharFilter.UPPERCASE));
+        assertEquals(upperCase, inputTypeOf(inputView, CharFilter.of("ACGT", true)));
+        assertEquals(text, inputTypeOf(inputView, CharFilter.of("acgt", false)));
+    }
+
+    private static int inputTypeOf(InputView inputView, CharFilter filter) {
+        inputView.setFilter(filter);
+        EditorInfo editorInfo = new EditorInfo();
+        inputView.onCreateInputConnection(editorInfo);
+        return editorInfo.inputType;
+    }
+
+    @Test
+    public void styleCache_sharesWithinConfigAndTheme() {
+        InputViewStyle.clearCache();
+        Context context = new ContextThemeWrapper(RuntimeEnvironment.application, android.R.style.Theme_Material_Light);
+        InputViewStyle style = InputViewStyle.obtain(context, itemSizeAttrs(6));
+        assertEquals(6, style.getItemSize());
+        assertSame(style, InputViewStyle.obtain(context, itemSizeAttrs(6)));
+        assertNotSame(style, InputViewStyle.obtain(context, itemSizeAttrs(5)));
+    }
+
+    @Test
+    public void styleCache_missesAcrossThemesAndConfigs() {
+        InputViewStyle.clearCache();
+        Context application = RuntimeEnvironment.application;
+        Context light = new ContextThemeWrapper(application, android.R.style.Theme_Material_Light);
+        InputViewStyle style = InputViewStyle.obtain(light, itemSizeAttrs(6));
+
+        //主题不同
+        Context dark = new ContextThemeWrapper(application, android.R.style.Theme_Material);
+        assertNotSame(style, InputViewStyle.obtain(dark, itemSizeAttrs(6)));
+
+        //字体缩放不同
+        Configuration config = new Configuration(application.getResources().getConfiguration());
+        config.fontScale = 2f;
+        Context large = new ContextThemeWrapper(application.createConfigurationContext(config),
+                android.R.style.Theme_Material_Light);
+        assertNotSame(style, InputViewStyle.obtain(large, itemSizeAttrs(6)));
+    }
+
+    private static AttributeSet itemSizeAttrs(int itemSize) {
+        return Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.itemSize, String.valueOf(itemSize))
+                .build();
+    }
+
+    /**
+     * 写入 Parcel 再读出，和进程被回收后恢复时一样
+     */
+    private static Parcelable parcel(Parcelable state) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(state, 0);
+            parcel.setDataPosition(0);
+            return parcel.readParcelable(InputView.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * 创建控件并添加到 Activity，获得焦点、完成布局后暂停主线程
+     */
+    private static InputView attachView(int itemSize) {
+        AttributeSet attrs = itemSizeAttrs(itemSize);
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        InputView inputView = new InputView(activity, attrs);
+        activity.setContentView(inputView);
+        inputView.requestFocus();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        ShadowLooper.pauseMainLooper();
+        return inputView;
+    }
+
+    /**
+     * 主线程前进一帧，执行期间安排的下一帧回调，不会执行到光标闪动
+     */
+    private static void nextFrame() {
+        Robolectric.getForegroundThreadScheduler().advanceBy(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static Listener listen(InputView inputView) {
+        Listener listener = new Listener();
+        inputView.setOnTextChangedListener(listener);
+        inputView.setOnInputCompleteListener(listener);
+        return listener;
+    }
+
+    /**
+     * 记录子控件请求发送的无障碍事件
+     */
+    private static class EventRecorder extends FrameLayout {
+        final List<AccessibilityEvent> events = new ArrayList<>();
+
+        EventRecorder(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean requestSendAccessibilityEvent(View child, AccessibilityEvent event) {
+            events.add(AccessibilityEvent.obtain(event));
+            return super.requestSendAccessibilityEvent(child, event);
+        }
+
+        int countEvents(int eventType) {
+            int count = 0;
+            for (AccessibilityEvent event : events) {
+                if (event.getEventType() == eventType) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 记录回调次数和最后一次回调的内容
+     */
+    private static class Listener implements InputView.OnTextChangedListener, InputView.OnInputCompleteListener {
+        int textChanged;
+        int inputComplete;
+        String text;
+
+        @Override
+        public void onTextChanged(InputView view, CharSequence text) {
+            textChanged++;
+            this.text = text.toString();
+        }
+
+        @Override
+        public void onInputComplete(InputView view, CharSequence text) {
+            inputComplete++;
+        }
+    }
+}
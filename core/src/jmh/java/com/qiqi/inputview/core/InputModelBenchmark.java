@@ -0,0 +1,52 @@
+package com.qiqi.inputview.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 输入状态机热点路径的 JMH 基准测试：./gradlew :core:jmh
+ * <p>
+ * 分配情况可以通过 jmh { profilers = ['gc'] } 查看
+ */
+@State(Scope.Thread)
+public class InputModelBenchmark {
+    @Param({"4", "6", "12"})
+    public int itemSize;
+
+    private InputModel model;//空的，用于输入和删除
+    private InputModel filled;//已输入完毕，只用于读取
+    private char[] dest;
+
+    @Setup
+    public void setUp() {
+        model = new InputModel(itemSize);
+        filled = new InputModel(itemSize);
+        filled.insert("123456789012");
+        dest = new char[itemSize];
+    }
+
+    @Benchmark
+    public int addAndDelete() {
+        for (int i = 0; i < itemSize; i++) {
+            model.add('5');
+        }
+        int sum = 0;
+        for (int i = 0; i < itemSize; i++) {
+            sum += model.delete();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public String getText() {
+        return filled.toString();
+    }
+
+    @Benchmark
+    public int getTextIntoBuffer() {
+        return filled.getText(dest);
+    }
+}
@@ -0,0 +1,174 @@
+package com.qiqi.inputview.core;
+
+/**
+ * 每一项的布局计算
+ * <p>
+ * 项从左到右排列，项之间有固定间距。配置的项宽高只作为首选大小，
+ * 实际大小由 {@link #resolve(int, int)} 根据指定的宽高确定，不会覆盖配置。
+ * 所有计算都是常数时间，与项数无关。
+ */
+public final class CellLayout {
+    private int itemSize;//个数
+    private int itemWidth;//首选宽度
+    private int itemHeight;//首选高度
+    private int itemPadding;//间隔
+    private int cellWidth;//实际宽度
+    private int cellHeight;//实际高度
+    private int originX;//第一项左边界
+    private int originY;//项的上边界
+
+    public CellLayout(int itemSize, int itemWidth, int itemHeight, int itemPadding) {
+        this.itemSize = itemSize;
+        this.itemWidth = itemWidth;
+        this.itemHeight = itemHeight;
+        this.itemPadding = itemPadding;
+        resolve(-1, -1);
+    }
+
+    public int getItemSize() {
+        return itemSize;
+    }
+
+    public void setItemSize(int itemSize) {
+        this.itemSize = itemSize;
+    }
+
+    public int getItemWidth() {
+        return itemWidth;
+    }
+
+    public void setItemWidth(int itemWidth) {
+        this.itemWidth = itemWidth;
+    }
+
+    public int getItemHeight() {
+        return itemHeight;
+    }
+
+    public void setItemHeight(int itemHeight) {
+        this.itemHeight = itemHeight;
+    }
+
+    public int getItemPadding() {
+        return itemPadding;
+    }
+
+    public void setItemPadding(int itemPadding) {
+        this.itemPadding = itemPadding;
+    }
+
+    /**
+     * 没有指定大小时的宽度 = 单个项宽度 * 项数 + 间距 *（项数 - 1）
+     */
+    public int getPreferredWidth() {
+        return itemSize <= 0 ? 0 : itemWidth * itemSize + itemPadding * (itemSize - 1);
+    }
+
+    /**
+     * 没有指定大小时的高度 = 单个项高度
+     */
+    public int getPreferredHeight() {
+        return itemHeight;
+    }
+
+    /**
+     * 确定每一项的实际大小
+     *
+     * @param width  指定的宽度，项宽度 = (宽度 - 间距 *(项数 - 1)) / 项数，小于 0 时使用首选宽度
+     * @param height 指定的高度，小于 0 时使用首选高度
+     */
+    public void resolve(int width, int height) {
+        if (width < 0 || itemSize <= 0) {
+            cellWidth = itemWidth;
+        } else {
+            cellWidth = Math.max(0, (width - itemPadding * (itemSize - 1)) / itemSize);
+        }
+        cellHeight = height < 0 ? itemHeight : height;
+    }
+
+    /**
+     * 设置第一项的左上角位置，一般为控件的 paddingLeft 和 paddingTop
+     */
+    public void setOrigin(int originX, int originY) {
+        this.originX = originX;
+        this.originY = originY;
+    }
+
+    public int getCellWidth() {
+        return cellWidth;
+    }
+
+    public int getCellHeight() {
+        return cellHeight;
+    }
+
+    /**
+     * 相邻两项左边界的距离
+     */
+    public int getStep() {
+        return cellWidth + itemPadding;
+    }
+
+    /**
+     * 左边界 = 第一项左边界 + (项宽度 + 间距) * index
+     */
+    public int getCellLeft(int index) {
+        return originX + getStep() * index;
+    }
+
+    public int getCellRight(int index) {
+        return getCellLeft(index) + cellWidth;
+    }
+
+    public int getCellTop() {
+        return originY;
+    }
+
+    public int getCellBottom() {
+        return originY + cellHeight;
+    }
+
+    public int getCellCenterX(int index) {
+        return getCellLeft(index) + cellWidth / 2;
+    }
+
+    /**
+     * 与 [left, +∞) 相交的第一项
+     */
+    public int getFirstVisible(int left) {
+        int step = getStep();
+        if (step <= 0 || left <= originX) {
+            return 0;
+        }
+        return Math.min(itemSize, (left - originX) / step);
+    }
+
+    /**
+     * 与 (-∞, right] 相交的最后一项，没有时返回 -1
+     */
+    public int getLastVisible(int right) {
+        int step = getStep();
+        if (step <= 0) {
+            return itemSize - 1;
+        }
+        if (right <= originX) {
+            return -1;
+        }
+        return Math.min(itemSize - 1, (right - originX) / step);
+    }
+
+    /**
+     * x 坐标所在的项，落在间距中或超出范围时返回 -1
+     */
+    public int getCellAt(int x) {
+        int step = getStep();
+        if (step <= 0 || x < originX) {
+            return -1;
+        }
+        int index = (x - originX) / step;
+        if (index >= itemSize || x >= getCellRight(index)) {
+            return -1;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,139 @@
+package com.qiqi.inputview.core;
+
+/**
+ * 输入字符过滤器
+ * <p>
+ * 创建时把允许的字符集编译为查找表，{@link #filter(char)} 只做一次数组访问，不使用正则，也不创建对象。
+ * 开启大小写折叠时，字母不区分大小写，统一转为大写。不可变，可以在多个线程和控件间共用。
+ */
+public final class CharFilter {
+    private static final String DIGIT_CHARS = "0123456789";
+    private static final String UPPERCASE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String LOWERCASE_CHARS = "abcdefghijklmnopqrstuvwxyz";
+
+    /**
+     * 数字
+     */
+    public static final CharFilter DIGITS = new CharFilter(DIGIT_CHARS, false);
+    /**
+     * 十六进制，大小写均可
+     */
+    public static final CharFilter HEX = new CharFilter(DIGIT_CHARS + "ABCDEFabcdef", false);
+    /**
+     * 字母和数字，大小写均可
+     */
+    public static final CharFilter ALPHANUMERIC = new CharFilter(DIGIT_CHARS + UPPERCASE_CHARS + LOWERCASE_CHARS, false);
+    /**
+     * 大写字母和数字，小写字母自动转为大写
+     */
+    public static final CharFilter UPPERCASE = new CharFilter(DIGIT_CHARS + UPPERCASE_CHARS, true);
+
+    private final String chars;//允许的字符
+    private final boolean foldCase;//是否折叠大小写
+    private final char[] table;//查找表：字符 -> 转换后的字符，0 表示不接受
+    private final boolean digitsOnly;//是否只接受数字
+    private final boolean hasLetters;//是否接受字母
+
+    private CharFilter(String chars, boolean foldCase) {
+        this.chars = chars;
+        this.foldCase = foldCase;
+        int max = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            max = Math.max(max, c);
+            if (foldCase) {
+                max = Math.max(max, Math.max(Character.toUpperCase(c), Character.toLowerCase(c)));
+            }
+        }
+        table = new char[chars.length() == 0 ? 0 : max + 1];
+        boolean digitsOnly = chars.length() > 0;
+        boolean hasLetters = false;
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c == 0) {
+                throw new IllegalArgumentException("\\0 is not allowed");
+            }
+            if (foldCase && Character.isLetter(c)) {
+                char upper = Character.toUpperCase(c);
+                table[upper] = upper;
+                table[Character.toLowerCase(c)] = upper;
+            } else {
+                table[c] = c;
+            }
+            digitsOnly &= c >= '0' && c <= '9';
+            hasLetters |= Character.isLetter(c);
+        }
+        this.digitsOnly = digitsOnly;
+        this.hasLetters = hasLetters;
+    }
+
+    /**
+     * 只接受 chars 中的字符
+     *
+     * @param chars    允许的字符，不能包含 \0
+     * @param foldCase 是否不区分大小写，字母统一转为大写
+     */
+    public static CharFilter of(String chars, boolean foldCase) {
+        return new CharFilter(chars, foldCase);
+    }
+
+    /**
+     * 相同字符集、指定大小写折叠的过滤器
+     */
+    public CharFilter withFoldCase(boolean foldCase) {
+        return foldCase == this.foldCase ? this : new CharFilter(chars, foldCase);
+    }
+
+    /**
+     * 转换字符
+     *
+     * @return 转换后的字符（大小写折叠时字母为大写），不接受时返回 0
+     */
+    public char filter(char c) {
+        return c < table.length ? table[c] : 0;
+    }
+
+    public boolean accepts(char c) {
+        return filter(c) != 0;
+    }
+
+    public String getChars() {
+        return chars;
+    }
+
+    public boolean isFoldCase() {
+        return foldCase;
+    }
+
+    /**
+     * 是否只接受数字，可以使用数字键盘
+     */
+    public boolean isDigitsOnly() {
+        return digitsOnly;
+    }
+
+    /**
+     * 是否接受字母
+     */
+    public boolean hasLetters() {
+        return hasLetters;
+    }
+
+    /**
+     * 输入的字母是否都是大写：开启大小写折叠，或者只允许大写字母
+     */
+    public boolean isUpperCaseOnly() {
+        if (!hasLetters) {
+            return false;
+        }
+        if (foldCase) {
+            return true;
+        }
+        for (int i = 0; i < chars.length(); i++) {
+            if (Character.isLowerCase(chars.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,211 @@
+package com.qiqi.inputview.core;
+
+/**
+ * 输入状态机：定长的字符缓冲和光标
+ * <p>
+ * 光标总是位于已输入内容的末尾，只能在末尾追加或删除，光标位置即为已输入的字符数，
+ * 所有项都输入后即为输入完毕。与 Android 无关，可以直接在 JVM 上测试和复用。非线程安全。
+ */
+public final class InputModel {
+    private char[] buffer;//文本缓冲，容量即为项数
+    private int length;//已输入的字符数，同时也是光标位置
+    private CharFilter filter = CharFilter.DIGITS;//允许输入的字符
+    private final CharSequence sequence = new Sequence();//文本缓冲的只读视图
+
+    /**
+     * @param capacity 项数
+     */
+    public InputModel(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity < 0: " + capacity);
+        }
+        buffer = new char[capacity];
+    }
+
+    /**
+     * 项数
+     */
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /**
+     * 修改项数，已输入的内容超出时截断
+     */
+    public void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity < 0: " + capacity);
+        }
+        if (capacity == buffer.length) {
+            return;
+        }
+        char[] newBuffer = new char[capacity];
+        length = Math.min(length, capacity);
+        System.arraycopy(buffer, 0, newBuffer, 0, length);
+        buffer = newBuffer;
+    }
+
+    /**
+     * 已输入的字符数
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 光标位置，总是等于已输入的字符数
+     */
+    public int getCursorPosition() {
+        return length;
+    }
+
+    /**
+     * 是否所有项都已输入
+     */
+    public boolean isComplete() {
+        return buffer.length > 0 && length == buffer.length;
+    }
+
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        }
+        return buffer[index];
+    }
+
+    public CharFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * 修改允许输入的字符，已输入的内容不受影响
+     */
+    public void setFilter(CharFilter filter) {
+        if (filter == null) {
+            throw new NullPointerException("filter == null");
+        }
+        this.filter = filter;
+    }
+
+    /**
+     * 是否接受该字符，由 {@link CharFilter} 决定，默认只接受数字
+     */
+    public boolean accepts(char c) {
+        return filter.accepts(c);
+    }
+
+    /**
+     * 在光标处增加一个字符，开启大小写折叠时保存转换后的字符
+     *
+     * @return 已满或不接受该字符时返回 false
+     */
+    public boolean add(char c) {
+        if (length >= buffer.length) {
+            return false;
+        }
+        char filtered = filter.filter(c);
+        if (filtered == 0) {
+            return false;
+        }
+        buffer[length++] = filtered;
+        return true;
+    }
+
+    /**
+     * 删除光标前的一个字符
+     *
+     * @return 被删除的字符，没有内容时返回 0
+     */
+    public char delete() {
+        if (length == 0) {
+            return 0;
+        }
+        char c = buffer[--length];
+        buffer[length] = 0;
+        return c;
+    }
+
+    /**
+     * 在光标处插入文字，不接受的字符跳过，超出项数的部分忽略
+     *
+     * @return 实际插入的字符数
+     */
+    public int insert(CharSequence text) {
+        int oldLength = length;
+        for (int i = 0; i < text.length() && length < buffer.length; i++) {
+            add(text.charAt(i));
+        }
+        return length - oldLength;
+    }
+
+    /**
+     * 删除光标前的 count 个字符
+     *
+     * @return 实际删除的字符数
+     */
+    public int deleteBefore(int count) {
+        int deleted = Math.min(Math.max(count, 0), length);
+        for (int i = 0; i < deleted; i++) {
+            buffer[--length] = 0;
+        }
+        return deleted;
+    }
+
+    /**
+     * 清空
+     *
+     * @return 被删除的字符数
+     */
+    public int clear() {
+        return deleteBefore(length);
+    }
+
+    /**
+     * 将已输入的内容复制到 dest 中，不创建新对象
+     *
+     * @param dest 长度至少为已输入的字符数
+     * @return 已输入的字符数
+     */
+    public int getText(char[] dest) {
+        System.arraycopy(buffer, 0, dest, 0, length);
+        return length;
+    }
+
+    /**
+     * 已输入内容的只读视图，随输入变化，调用时不会创建新对象
+     */
+    public CharSequence asCharSequence() {
+        return sequence;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * 直接读取文本缓冲的 CharSequence
+     */
+    private class Sequence implements CharSequence {
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return InputModel.this.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return InputModel.this.toString();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.qiqi.inputview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CellLayoutTest {
+
+    @Test
+    public void preferredSize() {
+        CellLayout layout = new CellLayout(4, 40, 50, 10);
+        assertEquals(4 * 40 + 3 * 10, layout.getPreferredWidth());
+        assertEquals(50, layout.getPreferredHeight());
+        assertEquals(40, layout.getCellWidth());
+    }
+
+    @Test
+    public void resolve_exactWidthDoesNotOverwriteItemWidth() {
+        CellLayout layout = new CellLayout(4, 40, 50, 10);
+        layout.resolve(130, 60);
+        assertEquals(25, layout.getCellWidth());
+        assertEquals(60, layout.getCellHeight());
+        assertEquals(40, layout.getItemWidth());
+        layout.resolve(-1, -1);
+        assertEquals(40, layout.getCellWidth());
+        assertEquals(50, layout.getCellHeight());
+    }
+
+    @Test
+    public void cellBounds() {
+        CellLayout layout = new CellLayout(4, 40, 50, 10);
+        layout.setOrigin(5, 7);
+        assertEquals(5, layout.getCellLeft(0));
+        assertEquals(55, layout.getCellLeft(1));
+        assertEquals(95, layout.getCellRight(1));
+        assertEquals(75, layout.getCellCenterX(1));
+        assertEquals(7, layout.getCellTop());
+        assertEquals(57, layout.getCellBottom());
+    }
+
+    @Test
+    public void visibleRange() {
+        CellLayout layout = new CellLayout(4, 40, 50, 10);
+        assertEquals(0, layout.getFirstVisible(-20));
+        assertEquals(1, layout.getFirstVisible(60));
+        assertEquals(2, layout.getLastVisible(120));
+        assertEquals(3, layout.getLastVisible(1000));
+        assertEquals(-1, layout.getLastVisible(0));
+    }
+
+    @Test
+    public void cellAt() {
+        CellLayout layout = new CellLayout(4, 40, 50, 10);
+        assertEquals(0, layout.getCellAt(0));
+        assertEquals(0, layout.getCellAt(39));
+        assertEquals(-1, layout.getCellAt(45));
+        assertEquals(1, layout.getCellAt(50));
+        assertEquals(-1, layout.getCellAt(-1));
+        assertEquals(-1, layout.getCellAt(200));
+    }
+}
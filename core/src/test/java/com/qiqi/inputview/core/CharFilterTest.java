@@ -0,0 +1,68 @@
+package com.qiqi.inputview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CharFilterTest {
+
+    @Test
+    public void digits() {
+        assertTrue(CharFilter.DIGITS.accepts('0'));
+        assertTrue(CharFilter.DIGITS.accepts('9'));
+        assertFalse(CharFilter.DIGITS.accepts('a'));
+        assertFalse(CharFilter.DIGITS.accepts('一'));
+        assertTrue(CharFilter.DIGITS.isDigitsOnly());
+        assertFalse(CharFilter.DIGITS.hasLetters());
+    }
+
+    @Test
+    public void hex_keepsCaseWithoutFolding() {
+        assertEquals('a', CharFilter.HEX.filter('a'));
+        assertEquals('F', CharFilter.HEX.filter('F'));
+        assertEquals(0, CharFilter.HEX.filter('g'));
+        assertFalse(CharFilter.HEX.isUpperCaseOnly());
+    }
+
+    @Test
+    public void foldCase_mapsToUpperCase() {
+        CharFilter hex = CharFilter.HEX.withFoldCase(true);
+        assertEquals('A', hex.filter('a'));
+        assertEquals('A', hex.filter('A'));
+        assertEquals('7', hex.filter('7'));
+        assertTrue(hex.isUpperCaseOnly());
+        assertSame(hex, hex.withFoldCase(true));
+    }
+
+    @Test
+    public void uppercase() {
+        assertEquals('Z', CharFilter.UPPERCASE.filter('z'));
+        assertEquals('5', CharFilter.UPPERCASE.filter('5'));
+        assertEquals(0, CharFilter.UPPERCASE.filter('-'));
+        assertFalse(CharFilter.UPPERCASE.isDigitsOnly());
+    }
+
+    @Test
+    public void custom() {
+        CharFilter filter = CharFilter.of("ACGT", true);
+        assertEquals('G', filter.filter('g'));
+        assertEquals(0, filter.filter('b'));
+        assertEquals(0, filter.filter('￿'));
+        assertFalse(CharFilter.of("xyz", false).accepts('X'));
+        assertFalse(CharFilter.of("", false).accepts('a'));
+        assertFalse(CharFilter.of("", false).isDigitsOnly());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void custom_rejectsNullChar() {
+        CharFilter.of("a\0", false);
+    }
+
+    @Test
+    public void inputModel_usesFilter() {
+        InputModel model = new InputModel(4);
+        model.setFilter(CharFilter.UPPERCASE);
+        assertEquals(3, model.insert("a-b9"));
+        assertEquals("AB9", model.toString());
+    }
+}
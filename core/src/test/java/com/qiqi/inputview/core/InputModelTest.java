@@ -0,0 +1,143 @@
+package com.qiqi.inputview.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class InputModelTest {
+
+    @Test
+    public void add_untilComplete() {
+        InputModel model = new InputModel(4);
+        assertTrue(model.add('1'));
+        assertTrue(model.add('2'));
+        assertTrue(model.add('3'));
+        assertFalse(model.isComplete());
+        assertTrue(model.add('4'));
+        assertTrue(model.isComplete());
+        assertFalse(model.add('5'));
+        assertEquals("1234", model.toString());
+        assertEquals(4, model.getCursorPosition());
+    }
+
+    @Test
+    public void add_rejectsNonDigits() {
+        InputModel model = new InputModel(4);
+        assertFalse(model.add('a'));
+        assertFalse(model.add('*'));
+        assertEquals(0, model.length());
+    }
+
+    @Test
+    public void delete_removesBeforeCursor() {
+        InputModel model = new InputModel(4);
+        model.insert("1234");
+        assertEquals('4', model.delete());
+        assertFalse(model.isComplete());
+        assertEquals("123", model.toString());
+        model.clear();
+        assertEquals(0, model.delete());
+        assertEquals("", model.toString());
+    }
+
+    @Test
+    public void insert_skipsRejectedAndTruncates() {
+        InputModel model = new InputModel(6);
+        assertEquals(6, model.insert("12-34 56789"));
+        assertEquals("123456", model.toString());
+        assertTrue(model.isComplete());
+    }
+
+    @Test
+    public void deleteBefore_clampsToLength() {
+        InputModel model = new InputModel(6);
+        model.insert("123");
+        assertEquals(2, model.deleteBefore(2));
+        assertEquals(1, model.deleteBefore(10));
+        assertEquals(0, model.deleteBefore(-1));
+        assertEquals(0, model.length());
+    }
+
+    @Test
+    public void setCapacity_truncatesContent() {
+        InputModel model = new InputModel(6);
+        model.insert("123456");
+        model.setCapacity(4);
+        assertEquals("1234", model.toString());
+        assertTrue(model.isComplete());
+        model.setCapacity(8);
+        assertEquals("1234", model.toString());
+        assertFalse(model.isComplete());
+    }
+
+    @Test
+    public void asCharSequence_isLiveView() {
+        InputModel model = new InputModel(4);
+        CharSequence text = model.asCharSequence();
+        model.insert("12");
+        assertEquals(2, text.length());
+        assertEquals('2', text.charAt(1));
+        assertEquals("12", text.toString());
+        model.add('3');
+        assertEquals("123", text.toString());
+        assertSame(text, model.asCharSequence());
+    }
+
+    @Test
+    public void getText_copiesWithoutAllocating() {
+        InputModel model = new InputModel(4);
+        model.insert("987");
+        char[] dest = new char[4];
+        assertEquals(3, model.getText(dest));
+        assertEquals("987", new String(dest, 0, 3));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void charAt_outOfRange() {
+        InputModel model = new InputModel(4);
+        model.add('1');
+        model.charAt(1);
+    }
+
+    /**
+     * 随机按键序列与 StringBuilder 的结果对比
+     */
+    @Test
+    public void fuzz_matchesReference() {
+        Random random = new Random(20180721);
+        for (int round = 0; round < 2000; round++) {
+            int capacity = random.nextInt(13);
+            InputModel model = new InputModel(capacity);
+            StringBuilder expected = new StringBuilder();
+            for (int step = 0; step < 64; step++) {
+                int op = random.nextInt(10);
+                if (op < 6) {
+                    char c = (char) (' ' + random.nextInt(64));
+                    boolean accepted = c >= '0' && c <= '9' && expected.length() < capacity;
+                    assertEquals(accepted, model.add(c));
+                    if (accepted) {
+                        expected.append(c);
+                    }
+                } else if (op < 9) {
+                    char deleted = model.delete();
+                    if (expected.length() > 0) {
+                        assertEquals(expected.charAt(expected.length() - 1), deleted);
+                        expected.setLength(expected.length() - 1);
+                    } else {
+                        assertEquals(0, deleted);
+                    }
+                } else {
+                    int count = random.nextInt(4);
+                    int deleted = Math.min(count, expected.length());
+                    assertEquals(deleted, model.deleteBefore(count));
+                    expected.setLength(expected.length() - deleted);
+                }
+                assertEquals(expected.toString(), model.toString());
+                assertEquals(expected.length(), model.getCursorPosition());
+                assertEquals(capacity > 0 && expected.length() == capacity, model.isComplete());
+            }
+        }
+    }
+}